@@ -0,0 +1,25 @@
+package com.github.mouse0w0.viewpane;
+
+import javafx.scene.Node;
+import javafx.util.Callback;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Creates the content of a tab in the background. The returned future may be cancelled if the tab is
+ * deselected before it completes, long running factories should check {@link CompletableFuture#isCancelled()}.
+ */
+@FunctionalInterface
+public interface AsyncContentFactory {
+
+    static AsyncContentFactory of(Callback<ViewTab, Node> factory) {
+        return (tab, executor) -> CompletableFuture.supplyAsync(() -> factory.call(tab), executor);
+    }
+
+    /**
+     * @param tab      the tab to create the content for
+     * @param executor the content executor of the view pane
+     */
+    CompletableFuture<Node> createContent(ViewTab tab, Executor executor);
+}
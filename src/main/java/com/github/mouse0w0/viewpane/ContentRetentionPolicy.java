@@ -0,0 +1,54 @@
+package com.github.mouse0w0.viewpane;
+
+import javafx.scene.Node;
+import javafx.scene.Parent;
+
+import java.util.List;
+
+/**
+ * Decides how many of the hidden tabs keep their content. Only tabs with a content factory or an async content
+ * factory are considered, see {@link ViewTab#isContentRebuildable()}, the others cannot rebuild their content and
+ * always keep it. A tab with an async content factory shows a placeholder while its content is rebuilt.
+ */
+@FunctionalInterface
+public interface ContentRetentionPolicy {
+
+    ContentRetentionPolicy KEEP_ALL = List::size;
+
+    static ContentRetentionPolicy mostRecentlyUsed(int count) {
+        if (count < 0) throw new IllegalArgumentException("count must be non-negative");
+        return hiddenTabs -> Math.min(count, hiddenTabs.size());
+    }
+
+    /**
+     * Keeps the most recently hidden contents as long as their total node count stays within the budget.
+     */
+    static ContentRetentionPolicy nodeBudget(int nodeCount) {
+        if (nodeCount < 0) throw new IllegalArgumentException("nodeCount must be non-negative");
+        return hiddenTabs -> {
+            int total = 0;
+            for (int i = 0; i < hiddenTabs.size(); i++) {
+                total += countNodes(hiddenTabs.get(i).getContent());
+                if (total > nodeCount) return i;
+            }
+            return hiddenTabs.size();
+        };
+    }
+
+    static int countNodes(Node node) {
+        if (node == null) return 0;
+        int count = 1;
+        if (node instanceof Parent) {
+            for (Node child : ((Parent) node).getChildrenUnmodifiable()) {
+                count += countNodes(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param hiddenTabs the hidden tabs with content, the most recently hidden first
+     * @return the number of tabs at the head of the list that keep their content
+     */
+    int computeRetainedCount(List<ViewTab> hiddenTabs);
+}
@@ -0,0 +1,17 @@
+package com.github.mouse0w0.viewpane;
+
+public enum DividerResizePolicy {
+    /**
+     * The divider keeps its position as a fraction of the available size.
+     */
+    PROPORTIONAL,
+    /**
+     * The views on the side of the divider keep their size in pixels, the center absorbs the change.
+     */
+    FIXED,
+    /**
+     * The change is distributed by {@link ViewPane.Divider#getResizeWeight()}, the fraction given to the
+     * top or left of the divider.
+     */
+    WEIGHTED
+}
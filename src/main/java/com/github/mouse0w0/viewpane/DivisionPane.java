@@ -0,0 +1,296 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.skin.DivisionHelper;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.event.Event;
+import javafx.geometry.Orientation;
+import javafx.scene.Cursor;
+import javafx.scene.Node;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lays out any number of items along its orientation, separated by draggable dividers, with the same layout
+ * engine as the division area of {@link ViewPane}. It is meant for the views which need more panes than the
+ * eight view groups: unlike a nested view pane it has no side bars or tab bars, so it costs a single layout
+ * pass. Division panes can be nested for nested splits.
+ * <p>
+ * The dividers keep their positions as fractions of the size of the pane when it is resized, unless an item
+ * has a weight, see {@link #setWeight(Node, double)}. Then every item gets the share of its weight of the
+ * change, items without a weight get none.
+ */
+public class DivisionPane extends Region {
+    private static final Object WEIGHT_KEY = new Object();
+
+    public static void setWeight(Node item, double weight) {
+        if (Double.isNaN(weight)) {
+            item.getProperties().remove(WEIGHT_KEY);
+        } else {
+            if (weight < 0 || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("weight must be finite and non-negative");
+            }
+            item.getProperties().put(WEIGHT_KEY, weight);
+        }
+        if (item.getParent() instanceof DivisionPane) item.getParent().requestLayout();
+    }
+
+    /**
+     * @return the weight of the item, {@code NaN} if it has none
+     */
+    public static double getWeight(Node item) {
+        Object weight = item.hasProperties() ? item.getProperties().get(WEIGHT_KEY) : null;
+        return weight instanceof Double ? (Double) weight : Double.NaN;
+    }
+
+    private final ObservableList<Node> items = FXCollections.observableArrayList();
+    private final List<DividerHandle> dividers = new ArrayList<>();
+
+    private DivisionHelper layoutHelper;
+    private double[] positions = new double[0];
+    private double[] weights;
+
+    public DivisionPane() {
+        this(Orientation.HORIZONTAL);
+    }
+
+    public DivisionPane(Orientation orientation, Node... items) {
+        getStyleClass().setAll("division-pane");
+        setOrientation(orientation);
+        this.items.addListener((ListChangeListener<Node>) c -> updateChildren());
+        this.items.addAll(items);
+    }
+
+    public final ObservableList<Node> getItems() {
+        return items;
+    }
+
+    private ObjectProperty<Orientation> orientation;
+
+    public final ObjectProperty<Orientation> orientationProperty() {
+        if (orientation == null) {
+            orientation = new SimpleObjectProperty<Orientation>(this, "orientation", Orientation.HORIZONTAL) {
+                @Override
+                protected void invalidated() {
+                    for (DividerHandle divider : dividers) divider.updateCursor();
+                    layoutHelper = null;
+                    requestLayout();
+                }
+            };
+        }
+        return orientation;
+    }
+
+    public final Orientation getOrientation() {
+        return orientation == null ? Orientation.HORIZONTAL : orientation.get();
+    }
+
+    public final void setOrientation(Orientation value) {
+        orientationProperty().set(value);
+    }
+
+    /**
+     * @return the positions of the dividers as fractions of the size of the pane, as adjusted by the last layout
+     */
+    public final double[] getDividerPositions() {
+        return positions.clone();
+    }
+
+    /**
+     * Sets the positions of the first dividers. The positions are clamped by the next layout so that every item
+     * keeps its min size. Positions are spread evenly again when the number of items changes.
+     */
+    public final void setDividerPositions(double... positions) {
+        System.arraycopy(positions, 0, this.positions, 0, Math.min(positions.length, this.positions.length));
+        requestLayout();
+    }
+
+    public final void setDividerPosition(int index, double position) {
+        positions[index] = position;
+        requestLayout();
+    }
+
+    private void updateChildren() {
+        int dividerCount = Math.max(0, items.size() - 1);
+        while (dividers.size() < dividerCount) dividers.add(new DividerHandle(dividers.size()));
+        while (dividers.size() > dividerCount) dividers.remove(dividers.size() - 1);
+        if (positions.length != dividerCount) {
+            positions = new double[dividerCount];
+            for (int i = 0; i < dividerCount; i++) positions[i] = (i + 1) / (double) items.size();
+        }
+
+        List<Node> children = new ArrayList<>(items.size() + dividerCount);
+        children.addAll(items);
+        children.addAll(dividers);
+        getChildren().setAll(children);
+        layoutHelper = null;
+    }
+
+    private DivisionHelper createLayoutHelper() {
+        DivisionHelper helper = new DivisionHelper();
+        int split = helper.createSplit(getOrientation());
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) helper.addDivider(split, helper.createDivider());
+            helper.addContainer(split, helper.createContainer());
+        }
+        helper.setRoot(split);
+        weights = null;
+        return helper;
+    }
+
+    private void updateWeights() {
+        double[] weights = null;
+        for (int i = 0; i < items.size(); i++) {
+            double weight = getWeight(items.get(i));
+            if (Double.isNaN(weight)) continue;
+            if (weights == null) weights = new double[items.size()];
+            weights[i] = weight;
+        }
+        if (!Arrays.equals(weights, this.weights)) {
+            this.weights = weights;
+            layoutHelper.setWeights(0, weights);
+        }
+    }
+
+    private boolean isHorizontal() {
+        return getOrientation() == Orientation.HORIZONTAL;
+    }
+
+    @Override
+    protected void layoutChildren() {
+        if (items.isEmpty()) return;
+        if (layoutHelper == null) layoutHelper = createLayoutHelper();
+
+        boolean horizontal = isHorizontal();
+        boolean leadingManaged = false;
+        for (int i = 0; i < items.size(); i++) {
+            Node item = items.get(i);
+            boolean managed = item.isManaged();
+            layoutHelper.setContainer(i, managed, managed ? item.minWidth(-1) : 0, managed ? item.minHeight(-1) : 0);
+            if (i > 0) {
+                // A divider is shown between two managed items only, the dividers of unmanaged items collapse.
+                DividerHandle divider = dividers.get(i - 1);
+                boolean dividerManaged = leadingManaged && managed;
+                divider.setVisible(dividerManaged);
+                double dividerWidth = horizontal ? divider.prefWidth(-1) : divider.prefHeight(-1);
+                layoutHelper.setDivider(i - 1, dividerManaged, dividerWidth, positions[i - 1]);
+            }
+            leadingManaged |= managed;
+        }
+        updateWeights();
+
+        double left = snappedLeftInset();
+        double top = snappedTopInset();
+        layoutHelper.layout(left, top, getWidth() - left - snappedRightInset(),
+                getHeight() - top - snappedBottomInset(), isSnapToPixel());
+
+        for (int i = 0; i < dividers.size(); i++) {
+            positions[i] = layoutHelper.getPosition(i);
+            if (layoutHelper.isDividerChanged(i)) {
+                dividers.get(i).resizeRelocate(layoutHelper.getDividerX(i), layoutHelper.getDividerY(i),
+                        layoutHelper.getDividerWidth(i), layoutHelper.getDividerHeight(i));
+            }
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Node item = items.get(i);
+            if (item.isManaged() && layoutHelper.isContainerChanged(i)) {
+                item.resizeRelocate(layoutHelper.getContainerX(i), layoutHelper.getContainerY(i),
+                        layoutHelper.getContainerWidth(i), layoutHelper.getContainerHeight(i));
+            }
+        }
+    }
+
+    @Override
+    protected double computeMinWidth(double height) {
+        return computeSize(true, false) + snappedLeftInset() + snappedRightInset();
+    }
+
+    @Override
+    protected double computeMinHeight(double width) {
+        return computeSize(false, false) + snappedTopInset() + snappedBottomInset();
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return computeSize(true, true) + snappedLeftInset() + snappedRightInset();
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return computeSize(false, true) + snappedTopInset() + snappedBottomInset();
+    }
+
+    private double computeSize(boolean width, boolean pref) {
+        boolean length = width == isHorizontal();
+        double result = 0;
+        boolean leadingManaged = false;
+        for (int i = 0; i < items.size(); i++) {
+            Node item = items.get(i);
+            if (!item.isManaged()) continue;
+            double size = width ? (pref ? item.prefWidth(-1) : item.minWidth(-1)) :
+                    (pref ? item.prefHeight(-1) : item.minHeight(-1));
+            if (length) {
+                result += size;
+                if (leadingManaged) {
+                    DividerHandle divider = dividers.get(i - 1);
+                    result += width ? divider.prefWidth(-1) : divider.prefHeight(-1);
+                }
+            } else {
+                result = Math.max(result, size);
+            }
+            leadingManaged = true;
+        }
+        return result;
+    }
+
+    @Override
+    public String getUserAgentStylesheet() {
+        return ViewPane.class.getResource("ViewPane.css").toExternalForm();
+    }
+
+    private final class DividerHandle extends Region {
+        private final int index;
+
+        private double initialPosition;
+        private double mousePosition;
+
+        DividerHandle(int index) {
+            this.index = index;
+            getStyleClass().setAll("divider");
+            updateCursor();
+
+            addEventHandler(MouseEvent.ANY, Event::consume);
+            setOnMousePressed(event -> {
+                initialPosition = positions[this.index];
+                mousePosition = isHorizontal() ? event.getSceneX() : event.getSceneY();
+            });
+            setOnMouseDragged(event -> {
+                double size = layoutHelper != null ? layoutHelper.getAreaSize(this.index) : 0;
+                if (size <= 0) return;
+                double delta = (isHorizontal() ? event.getSceneX() : event.getSceneY()) - mousePosition;
+                setDividerPosition(this.index, initialPosition + delta / size);
+            });
+        }
+
+        void updateCursor() {
+            setCursor(isHorizontal() ? Cursor.H_RESIZE : Cursor.V_RESIZE);
+        }
+
+        @Override
+        protected double computePrefWidth(double height) {
+            return snappedLeftInset() + snappedRightInset();
+        }
+
+        @Override
+        protected double computePrefHeight(double width) {
+            return snappedTopInset() + snappedBottomInset();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.mouse0w0.viewpane;
+
+import javafx.scene.Node;
+import javafx.util.Callback;
+
+import java.util.ArrayDeque;
+
+/**
+ * A content factory for tabs which show the same kind of view with different data. Released content is kept
+ * in a pool and bound to the next tab by {@link #updateItem(Node, ViewTab)} instead of being created again.
+ * <p>
+ * The content of a tab is released when it is unloaded or when the tab is removed from its view group.
+ *
+ * @param <N> the type of the content
+ */
+public abstract class ViewCellFactory<N extends Node> implements Callback<ViewTab, Node> {
+
+    private final ArrayDeque<N> pool = new ArrayDeque<>();
+    private int maxPoolSize;
+
+    public ViewCellFactory() {
+        this(8);
+    }
+
+    public ViewCellFactory(int maxPoolSize) {
+        setMaxPoolSize(maxPoolSize);
+    }
+
+    protected abstract N createNode();
+
+    /**
+     * Binds the content to the tab.
+     */
+    protected abstract void updateItem(N node, ViewTab tab);
+
+    /**
+     * Unbinds the content from the tab before it is returned to the pool.
+     */
+    protected void clearItem(N node, ViewTab tab) {
+    }
+
+    @Override
+    public final Node call(ViewTab tab) {
+        N node = pool.poll();
+        if (node == null) node = createNode();
+        updateItem(node, tab);
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    final void release(Node node, ViewTab tab) {
+        N cell = (N) node;
+        clearItem(cell, tab);
+        if (pool.size() < maxPoolSize) pool.push(cell);
+    }
+
+    public final int getPoolSize() {
+        return pool.size();
+    }
+
+    public final int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public final void setMaxPoolSize(int maxPoolSize) {
+        if (maxPoolSize < 0) throw new IllegalArgumentException("maxPoolSize must be non-negative");
+        this.maxPoolSize = maxPoolSize;
+        while (pool.size() > maxPoolSize) pool.removeLast();
+    }
+
+    public final void clearPool() {
+        pool.clear();
+    }
+}
@@ -2,17 +2,33 @@ package com.github.mouse0w0.viewpane;
 
 import com.github.mouse0w0.viewpane.geometry.EightPos;
 import com.github.mouse0w0.viewpane.skin.ViewPaneSkin;
+import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
 import javafx.geometry.Side;
 import javafx.scene.Node;
 import javafx.scene.control.Control;
 import javafx.scene.control.Skin;
+import javafx.util.Callback;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public class ViewPane extends Control {
 
@@ -68,6 +84,174 @@ public class ViewPane extends Control {
         return cacheViewGroups[pos.ordinal()];
     }
 
+    private final ViewPaneCommandQueue commandQueue = new ViewPaneCommandQueue(this);
+
+    /**
+     * The queue to change this view pane from other threads than the JavaFX Application Thread.
+     */
+    public final ViewPaneCommandQueue getCommandQueue() {
+        return commandQueue;
+    }
+
+    private int updateDepth;
+    private ReadOnlyBooleanWrapper updating;
+
+    private ReadOnlyBooleanWrapper updatingPropertyImpl() {
+        if (updating == null) {
+            updating = new ReadOnlyBooleanWrapper(this, "updating");
+        }
+        return updating;
+    }
+
+    /**
+     * Whether the view pane is between {@link #beginUpdate()} and {@link #endUpdate()}. The skin ignores
+     * changes of the view groups and of the selection while updating and applies the final state at the end.
+     */
+    public final ReadOnlyBooleanProperty updatingProperty() {
+        return updatingPropertyImpl().getReadOnlyProperty();
+    }
+
+    public final boolean isUpdating() {
+        return updating != null && updating.get();
+    }
+
+    public final void beginUpdate() {
+        if (updateDepth++ == 0) updatingPropertyImpl().set(true);
+    }
+
+    public final void endUpdate() {
+        if (updateDepth == 0) throw new IllegalStateException("endUpdate() without beginUpdate()");
+        if (--updateDepth == 0) updatingPropertyImpl().set(false);
+    }
+
+    /**
+     * Runs the given changes as a single update, updates can be nested.
+     */
+    public final void batch(Runnable runnable) {
+        beginUpdate();
+        try {
+            runnable.run();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private ObservableMap<String, ViewPaneState> perspectives;
+
+    /**
+     * The named arrangements of the view pane, see {@link #switchPerspective(String)}.
+     */
+    public final ObservableMap<String, ViewPaneState> getPerspectives() {
+        if (perspectives == null) {
+            perspectives = FXCollections.observableHashMap();
+            perspectives.addListener((MapChangeListener<String, ViewPaneState>) change -> {
+                if (change.wasRemoved()) prunePerspectiveTabs();
+            });
+        }
+        return perspectives;
+    }
+
+    private ReadOnlyStringWrapper perspective;
+
+    private ReadOnlyStringWrapper perspectivePropertyImpl() {
+        if (perspective == null) {
+            perspective = new ReadOnlyStringWrapper(this, "perspective");
+        }
+        return perspective;
+    }
+
+    /**
+     * The name of the perspective which was saved or switched to last.
+     */
+    public final ReadOnlyStringProperty perspectiveProperty() {
+        return perspectivePropertyImpl().getReadOnlyProperty();
+    }
+
+    public final String getPerspective() {
+        return perspective == null ? null : perspective.get();
+    }
+
+    private ObjectProperty<Callback<String, ViewTab>> perspectiveTabFactory;
+
+    /**
+     * Creates the tabs of a perspective which have never been part of this view pane, by id.
+     */
+    public final ObjectProperty<Callback<String, ViewTab>> perspectiveTabFactoryProperty() {
+        if (perspectiveTabFactory == null) {
+            perspectiveTabFactory = new SimpleObjectProperty<>(this, "perspectiveTabFactory");
+        }
+        return perspectiveTabFactory;
+    }
+
+    public final Callback<String, ViewTab> getPerspectiveTabFactory() {
+        return perspectiveTabFactory == null ? null : perspectiveTabFactory.get();
+    }
+
+    public final void setPerspectiveTabFactory(Callback<String, ViewTab> value) {
+        perspectiveTabFactoryProperty().set(value);
+    }
+
+    // The tabs taken out by a perspective switch and referenced by another perspective, put back when a later
+    // switch shows them again. Tabs removed in any other way are never parked, so a closed tab stays closed.
+    private final Map<String, ViewTab> perspectiveTabs = new HashMap<>();
+
+    public final void savePerspective(String name) {
+        getPerspectives().put(name, ViewPaneState.capture(this));
+        perspectivePropertyImpl().set(name);
+    }
+
+    /**
+     * Saves the current arrangement under the current perspective and switches to the named one in a single
+     * update. Only the tabs whose group or index differ are moved, moved tabs keep their buttons and content.
+     * Tabs without an id are not part of any perspective and stay where they are.
+     */
+    public final void switchPerspective(String name) {
+        ViewPaneState state = perspectives != null ? perspectives.get(name) : null;
+        if (state == null) throw new IllegalArgumentException("No perspective named " + name);
+
+        String current = getPerspective();
+        if (current != null) getPerspectives().put(current, ViewPaneState.capture(this));
+
+        Map<String, ViewTab> shownBefore = collectPerspectiveTabs();
+        state.restore(this, id -> {
+            ViewTab tab = perspectiveTabs.get(id);
+            if (tab == null) {
+                Callback<String, ViewTab> factory = getPerspectiveTabFactory();
+                if (factory != null) tab = factory.call(id);
+            }
+            return tab;
+        }, true);
+
+        Map<String, ViewTab> shownAfter = collectPerspectiveTabs();
+        for (Map.Entry<String, ViewTab> entry : shownBefore.entrySet()) {
+            if (!shownAfter.containsKey(entry.getKey())) perspectiveTabs.put(entry.getKey(), entry.getValue());
+        }
+        perspectiveTabs.keySet().removeAll(shownAfter.keySet());
+        perspectivePropertyImpl().set(name);
+        prunePerspectiveTabs();
+    }
+
+    private Map<String, ViewTab> collectPerspectiveTabs() {
+        Map<String, ViewTab> tabs = new HashMap<>();
+        for (ViewGroup viewGroup : getViewGroups()) {
+            for (ViewTab tab : viewGroup.getTabs()) {
+                if (tab.getId() != null) tabs.put(tab.getId(), tab);
+            }
+        }
+        return tabs;
+    }
+
+    private void prunePerspectiveTabs() {
+        if (perspectiveTabs.isEmpty()) return;
+        Set<String> referenced = new HashSet<>();
+        for (ViewPaneState state : getPerspectives().values()) {
+            for (EightPos pos : EightPos.values()) {
+                referenced.addAll(state.getTabIds(pos));
+            }
+        }
+        perspectiveTabs.keySet().retainAll(referenced);
+    }
+
     private ObjectProperty<Node> center;
 
     public final ObjectProperty<Node> centerProperty() {
@@ -107,6 +291,138 @@ public class ViewPane extends Control {
         getDivider(type).setPosition(position);
     }
 
+    private BooleanProperty commitDividerOnRelease;
+
+    public final BooleanProperty commitDividerOnReleaseProperty() {
+        if (commitDividerOnRelease == null) {
+            commitDividerOnRelease = new SimpleBooleanProperty(this, "commitDividerOnRelease");
+        }
+        return commitDividerOnRelease;
+    }
+
+    public final boolean isCommitDividerOnRelease() {
+        return commitDividerOnRelease != null && commitDividerOnRelease.get();
+    }
+
+    public final void setCommitDividerOnRelease(boolean value) {
+        commitDividerOnReleaseProperty().set(value);
+    }
+
+    private BooleanProperty continuousLayout;
+
+    public final BooleanProperty continuousLayoutProperty() {
+        if (continuousLayout == null) {
+            continuousLayout = new SimpleBooleanProperty(this, "continuousLayout", true);
+        }
+        return continuousLayout;
+    }
+
+    public final boolean isContinuousLayout() {
+        return continuousLayout == null || continuousLayout.get();
+    }
+
+    public final void setContinuousLayout(boolean value) {
+        continuousLayoutProperty().set(value);
+    }
+
+    private BooleanProperty throttleLiveResize;
+
+    /**
+     * When enabled, side views are only moved while the pane is being resized continuously and are resized
+     * a few times per second, the full layout is done once the size settles.
+     */
+    public final BooleanProperty throttleLiveResizeProperty() {
+        if (throttleLiveResize == null) {
+            throttleLiveResize = new SimpleBooleanProperty(this, "throttleLiveResize", false);
+        }
+        return throttleLiveResize;
+    }
+
+    public final boolean isThrottleLiveResize() {
+        return throttleLiveResize != null && throttleLiveResize.get();
+    }
+
+    public final void setThrottleLiveResize(boolean value) {
+        throttleLiveResizeProperty().set(value);
+    }
+
+    private ObjectProperty<Executor> contentExecutor;
+
+    /**
+     * The executor passed to async content factories. By default it runs on virtual threads when available,
+     * otherwise on a cached pool of daemon threads.
+     */
+    public final ObjectProperty<Executor> contentExecutorProperty() {
+        if (contentExecutor == null) {
+            contentExecutor = new SimpleObjectProperty<>(this, "contentExecutor");
+        }
+        return contentExecutor;
+    }
+
+    public final Executor getContentExecutor() {
+        Executor executor = contentExecutor == null ? null : contentExecutor.get();
+        return executor != null ? executor : DefaultContentExecutor.INSTANCE;
+    }
+
+    public final void setContentExecutor(Executor value) {
+        contentExecutorProperty().set(value);
+    }
+
+    private static final class DefaultContentExecutor {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                // Java 21+
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "ViewPane Content Loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    private BooleanProperty prewarmContent;
+
+    /**
+     * When enabled, the content of a tab is created and laid out ahead of time while the pointer rests on
+     * its button or the button is focused.
+     */
+    public final BooleanProperty prewarmContentProperty() {
+        if (prewarmContent == null) {
+            prewarmContent = new SimpleBooleanProperty(this, "prewarmContent", false);
+        }
+        return prewarmContent;
+    }
+
+    public final boolean isPrewarmContent() {
+        return prewarmContent != null && prewarmContent.get();
+    }
+
+    public final void setPrewarmContent(boolean value) {
+        prewarmContentProperty().set(value);
+    }
+
+    private ObjectProperty<ContentRetentionPolicy> contentRetentionPolicy;
+
+    public final ObjectProperty<ContentRetentionPolicy> contentRetentionPolicyProperty() {
+        if (contentRetentionPolicy == null) {
+            contentRetentionPolicy = new SimpleObjectProperty<>(this, "contentRetentionPolicy", ContentRetentionPolicy.KEEP_ALL);
+        }
+        return contentRetentionPolicy;
+    }
+
+    public final ContentRetentionPolicy getContentRetentionPolicy() {
+        return contentRetentionPolicy == null ? ContentRetentionPolicy.KEEP_ALL : contentRetentionPolicy.get();
+    }
+
+    public final void setContentRetentionPolicy(ContentRetentionPolicy value) {
+        contentRetentionPolicyProperty().set(value);
+    }
+
     @Override
     public String getUserAgentStylesheet() {
         return ViewPane.class.getResource("ViewPane.css").toExternalForm();
@@ -145,6 +461,40 @@ public class ViewPane extends Control {
             return position;
         }
 
+        private ObjectProperty<DividerResizePolicy> resizePolicy;
+
+        public final ObjectProperty<DividerResizePolicy> resizePolicyProperty() {
+            if (resizePolicy == null) {
+                resizePolicy = new SimpleObjectProperty<>(this, "resizePolicy", DividerResizePolicy.PROPORTIONAL);
+            }
+            return resizePolicy;
+        }
+
+        public final DividerResizePolicy getResizePolicy() {
+            return resizePolicy == null ? DividerResizePolicy.PROPORTIONAL : resizePolicy.get();
+        }
+
+        public final void setResizePolicy(DividerResizePolicy value) {
+            resizePolicyProperty().set(value);
+        }
+
+        private DoubleProperty resizeWeight;
+
+        public final DoubleProperty resizeWeightProperty() {
+            if (resizeWeight == null) {
+                resizeWeight = new SimpleDoubleProperty(this, "resizeWeight", 0.5);
+            }
+            return resizeWeight;
+        }
+
+        public final double getResizeWeight() {
+            return resizeWeight == null ? 0.5 : resizeWeight.get();
+        }
+
+        public final void setResizeWeight(double value) {
+            resizeWeightProperty().set(value);
+        }
+
         private double computePrefPosition() {
             return type.isPrimary() ? (type.getSide() == Side.TOP || type.getSide() == Side.LEFT ? 0.2 : 0.8) : 0.5;
         }
@@ -0,0 +1,155 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.geometry.EightPos;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.util.Duration;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Changes to a view pane posted from any thread. The commands are run on the JavaFX Application Thread once
+ * per pulse as a single update of the view pane, for at most the frame budget per pulse. Commands run in the
+ * order they were posted, except for repeated changes of the same value property (the text and graphic of a tab
+ * and the position of a divider) which have not been run yet: they are merged, the last value is applied at
+ * the position of the first change. Structural commands, such as adding, closing and selecting tabs, are never
+ * merged, as their effect depends on the commands before them.
+ */
+public final class ViewPaneCommandQueue {
+    private static final Object NULL = new Object();
+
+    private final ViewPane viewPane;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<Key, Object> pendingValues = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AnimationTimer drainTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    private volatile long frameBudget = 4_000_000L;
+
+    ViewPaneCommandQueue(ViewPane viewPane) {
+        this.viewPane = viewPane;
+    }
+
+    public Duration getFrameBudget() {
+        return Duration.millis(frameBudget / 1_000_000.0);
+    }
+
+    public void setFrameBudget(Duration frameBudget) {
+        if (frameBudget == null || frameBudget.lessThanOrEqualTo(Duration.ZERO)) {
+            throw new IllegalArgumentException("frameBudget must be positive");
+        }
+        this.frameBudget = (long) (frameBudget.toMillis() * 1_000_000);
+    }
+
+    public void execute(Runnable command) {
+        if (command == null) throw new NullPointerException("command");
+        commands.add(command);
+        schedule();
+    }
+
+    public void addTab(EightPos pos, ViewTab tab) {
+        execute(() -> viewPane.getViewGroup(pos).getTabs().add(tab));
+    }
+
+    public void closeTab(ViewTab tab) {
+        execute(() -> {
+            ViewGroup viewGroup = tab.getViewGroup();
+            if (viewGroup != null) viewGroup.getTabs().remove(tab);
+        });
+    }
+
+    public void selectTab(ViewTab tab) {
+        // Not merged: selecting depends on the group the tab is in when the command runs.
+        execute(() -> tab.setSelected(true));
+    }
+
+    public void setText(ViewTab tab, String text) {
+        set(tab, "text", text, tab::setText);
+    }
+
+    public void setGraphic(ViewTab tab, Node graphic) {
+        set(tab, "graphic", graphic, tab::setGraphic);
+    }
+
+    public void setDividerPosition(DividerType type, double position) {
+        set(type, "dividerPosition", position, value -> viewPane.getDivider(type).setPosition(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void set(Object target, String name, T value, Consumer<? super T> setter) {
+        Key key = new Key(target, name);
+        // Only the first pending value queues a command, the command applies the latest one.
+        if (pendingValues.put(key, value != null ? value : NULL) == null) {
+            execute(() -> {
+                Object pending = pendingValues.remove(key);
+                setter.accept(pending == NULL ? null : (T) pending);
+            });
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            if (Platform.isFxApplicationThread()) {
+                drainTimer.start();
+            } else {
+                Platform.runLater(drainTimer::start);
+            }
+        }
+    }
+
+    private void drain() {
+        long deadline = System.nanoTime() + frameBudget;
+        viewPane.batch(() -> {
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                try {
+                    command.run();
+                } catch (RuntimeException e) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+                if (System.nanoTime() >= deadline) break;
+            }
+        });
+
+        if (commands.isEmpty()) {
+            drainTimer.stop();
+            scheduled.set(false);
+            // A command may have been posted after the queue was found empty.
+            if (!commands.isEmpty()) schedule();
+        }
+    }
+
+    private static final class Key {
+        private final Object target;
+        private final String name;
+
+        Key(Object target, String name) {
+            this.target = target;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return target == key.target && name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(target) + name.hashCode();
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.geometry.EightPos;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.ListChangeListener;
+import javafx.util.Duration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the arrangement of a view pane as it changes. Changes of the view groups, the selection and the
+ * divider positions are collected for a short delay and appended as small delta records to a journal file next
+ * to the snapshot file. Once the journal exceeds the compaction threshold, it is folded into the snapshot in the
+ * background. Use {@link #load(Path)} to read the last saved state.
+ * <p>
+ * Records are checksummed, a record torn by a crash is dropped when loading. Every record carries the full state of
+ * a single group or divider, so replaying a journal which was already compacted is harmless. A snapshot which cannot
+ * be read is ignored when loading and moved aside to a file with a {@code .corrupt} suffix before it is replaced.
+ */
+public final class ViewPaneJournal implements AutoCloseable {
+    public static final Duration DEFAULT_DEBOUNCE_DELAY = Duration.millis(500);
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 64 * 1024;
+
+    private static final byte GROUP_RECORD = 1;
+    private static final byte GROUP_REMOVED_RECORD = 2;
+    private static final byte DIVIDER_RECORD = 3;
+
+    private static final EightPos[] POSITIONS = EightPos.values();
+    private static final DividerType[] DIVIDER_TYPES = DividerType.values();
+
+    private final ViewPane viewPane;
+    private final Path snapshotFile;
+    private final Path journalFile;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ViewPane Journal Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final PauseTransition debounce = new PauseTransition(DEFAULT_DEBOUNCE_DELAY);
+
+    private final boolean[] dirtyGroups = new boolean[POSITIONS.length];
+    private final boolean[] dirtyDividers = new boolean[DIVIDER_TYPES.length];
+    private final InvalidationListener[] groupListeners = new InvalidationListener[POSITIONS.length];
+    private final InvalidationListener[] dividerListeners = new InvalidationListener[DIVIDER_TYPES.length];
+
+    private final ListChangeListener<ViewGroup> viewGroupsListener = c -> {
+        while (c.next()) {
+            for (ViewGroup viewGroup : c.getRemoved()) {
+                unobserve(viewGroup);
+                markGroup(viewGroup.getPos());
+            }
+            for (ViewGroup viewGroup : c.getAddedSubList()) {
+                observe(viewGroup);
+                markGroup(viewGroup.getPos());
+            }
+        }
+    };
+    private final ListChangeListener<ViewPane.Divider> dividersListener = c -> {
+        while (c.next()) {
+            for (ViewPane.Divider divider : c.getAddedSubList()) {
+                observe(divider);
+                markDivider(divider.getType());
+            }
+        }
+    };
+
+    private volatile long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+    private final CompletableFuture<Void> closeFuture = new CompletableFuture<>();
+
+    private FileChannel channel;
+    private boolean closed;
+
+    private ReadOnlyObjectWrapper<IOException> error;
+
+    /**
+     * Starts journaling the view pane. The journal is kept in a file named after the snapshot file with a
+     * {@code .journal} suffix. Must be called on the JavaFX Application Thread.
+     */
+    public ViewPaneJournal(ViewPane viewPane, Path snapshotFile) {
+        this.viewPane = viewPane;
+        this.snapshotFile = snapshotFile;
+        this.journalFile = getJournalFile(snapshotFile);
+
+        for (EightPos pos : POSITIONS) {
+            groupListeners[pos.ordinal()] = observable -> markGroup(pos);
+        }
+        for (DividerType type : DIVIDER_TYPES) {
+            dividerListeners[type.ordinal()] = observable -> markDivider(type);
+        }
+        debounce.setOnFinished(event -> flush());
+
+        viewPane.getViewGroups().addListener(viewGroupsListener);
+        viewPane.getDividers().addListener(dividersListener);
+        for (ViewGroup viewGroup : viewPane.getViewGroups()) {
+            observe(viewGroup);
+            markGroup(viewGroup.getPos());
+        }
+        for (ViewPane.Divider divider : viewPane.getDividers()) {
+            observe(divider);
+            markDivider(divider.getType());
+        }
+    }
+
+    public Duration getDebounceDelay() {
+        return debounce.getDuration();
+    }
+
+    public void setDebounceDelay(Duration delay) {
+        debounce.setDuration(delay);
+    }
+
+    public long getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    /**
+     * Sets the size in bytes the journal may reach before it is compacted into the snapshot.
+     */
+    public void setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    private ReadOnlyObjectWrapper<IOException> errorPropertyImpl() {
+        if (error == null) {
+            error = new ReadOnlyObjectWrapper<>(this, "error");
+        }
+        return error;
+    }
+
+    /**
+     * The failure of the last write, cleared by the next successful one. A failed write is retried with the full
+     * state after the debounce delay. Updated on the JavaFX Application Thread.
+     */
+    public ReadOnlyObjectProperty<IOException> errorProperty() {
+        return errorPropertyImpl().getReadOnlyProperty();
+    }
+
+    public IOException getError() {
+        return error == null ? null : error.get();
+    }
+
+    private void setError(IOException value) {
+        if (value != null || error != null) errorPropertyImpl().set(value);
+    }
+
+    private void observe(ViewGroup viewGroup) {
+        InvalidationListener listener = groupListeners[viewGroup.getPos().ordinal()];
+        viewGroup.getTabs().addListener(listener);
+        viewGroup.getSelectionModel().selectedItemProperty().addListener(listener);
+    }
+
+    private void unobserve(ViewGroup viewGroup) {
+        InvalidationListener listener = groupListeners[viewGroup.getPos().ordinal()];
+        viewGroup.getTabs().removeListener(listener);
+        viewGroup.getSelectionModel().selectedItemProperty().removeListener(listener);
+    }
+
+    private void observe(ViewPane.Divider divider) {
+        divider.positionProperty().addListener(dividerListeners[divider.getType().ordinal()]);
+    }
+
+    private void unobserve(ViewPane.Divider divider) {
+        divider.positionProperty().removeListener(dividerListeners[divider.getType().ordinal()]);
+    }
+
+    private void markGroup(EightPos pos) {
+        dirtyGroups[pos.ordinal()] = true;
+        debounce.playFromStart();
+    }
+
+    private void markDivider(DividerType type) {
+        dirtyDividers[type.ordinal()] = true;
+        debounce.playFromStart();
+    }
+
+    /**
+     * Appends the pending changes to the journal now. Must be called on the JavaFX Application Thread.
+     */
+    public void flush() {
+        flush(false);
+    }
+
+    private void flush(boolean force) {
+        debounce.stop();
+        if (closed) return;
+        if (viewPane.isUpdating() && !force) {
+            // Wait for the final state of the update.
+            debounce.playFromStart();
+            return;
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        try {
+            for (int i = 0; i < dirtyGroups.length; i++) {
+                if (!dirtyGroups[i]) continue;
+                dirtyGroups[i] = false;
+                int pos = i;
+                ViewGroup viewGroup = findViewGroup(POSITIONS[pos]);
+                if (viewGroup != null) {
+                    writeGroupRecord(records, pos, ViewPaneState.captureTabIds(viewGroup),
+                            ViewPaneState.captureSelectedTabId(viewGroup));
+                } else {
+                    writeGroupRemovedRecord(records, pos);
+                }
+            }
+            for (ViewPane.Divider divider : viewPane.getDividers()) {
+                int index = divider.getType().ordinal();
+                if (!dirtyDividers[index]) continue;
+                dirtyDividers[index] = false;
+                writeDividerRecord(records, index, divider.getPosition());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (records.size() == 0) return;
+        byte[] bytes = records.toByteArray();
+        writer.execute(() -> append(bytes));
+    }
+
+    private ViewGroup findViewGroup(EightPos pos) {
+        for (ViewGroup viewGroup : viewPane.getViewGroups()) {
+            if (viewGroup.getPos() == pos) return viewGroup;
+        }
+        return null;
+    }
+
+    private void writeFailed(IOException e) {
+        setError(e);
+        // Records carry full states, so the next flush rewrites everything instead of the lost delta.
+        Arrays.fill(dirtyGroups, true);
+        Arrays.fill(dirtyDividers, true);
+        if (!closed) debounce.playFromStart();
+    }
+
+    /**
+     * Flushes the pending changes like {@link #closeAsync()} and waits for the writes to complete. This blocks the
+     * calling thread, usually the JavaFX Application Thread, for as long as the pending writes take, but at most
+     * 5 seconds. Use {@link #closeAsync()} where that is not acceptable.
+     */
+    @Override
+    public void close() {
+        closeAsync();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Flushes the pending changes, even in the middle of an update of the view pane, and stops observing the view
+     * pane without waiting for the writes. Must be called on the JavaFX Application Thread.
+     *
+     * @return a future completed on the writer thread once the pending writes are done and the journal is closed
+     */
+    public CompletableFuture<Void> closeAsync() {
+        if (closed) return closeFuture;
+        flush(true);
+        closed = true;
+        viewPane.getViewGroups().removeListener(viewGroupsListener);
+        viewPane.getDividers().removeListener(dividersListener);
+        for (ViewGroup viewGroup : viewPane.getViewGroups()) {
+            unobserve(viewGroup);
+        }
+        for (ViewPane.Divider divider : viewPane.getDividers()) {
+            unobserve(divider);
+        }
+        writer.execute(() -> {
+            closeChannel();
+            closeFuture.complete(null);
+        });
+        writer.shutdown();
+        return closeFuture;
+    }
+
+    // Writer thread
+
+    private void append(byte[] records) {
+        long size = -1;
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(journalFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            size = channel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+            size = -1;
+            if (channel.size() >= compactionThreshold) {
+                compact(snapshotFile, channel);
+            }
+            Platform.runLater(() -> setError(null));
+        } catch (IOException | RuntimeException | Error e) {
+            // Anything thrown here would only end up in the uncaught exception handler of the writer thread.
+            IOException failure = e instanceof IOException ? (IOException) e :
+                    new IOException("Failed to write journal", e);
+            if (size >= 0) {
+                // Drop a partial write, replaying stops at the first torn record.
+                try {
+                    channel.truncate(size);
+                } catch (IOException ignored) {
+                }
+            }
+            closeChannel();
+            Platform.runLater(() -> writeFailed(failure));
+        }
+    }
+
+    /**
+     * Folds the journal into the snapshot. The new snapshot is durable and in place before the journal is emptied,
+     * so a crash at any point leaves a state which loads to the same result.
+     */
+    static void compact(Path snapshotFile, FileChannel journal) throws IOException {
+        ViewPaneState state = load(snapshotFile);
+        if (state == null) state = new ViewPaneState();
+        quarantineCorruptSnapshot(snapshotFile);
+
+        Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (FileChannel temp = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(state.toBinary());
+            while (buffer.hasRemaining()) {
+                temp.write(buffer);
+            }
+            temp.force(true);
+        }
+        Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(snapshotFile.toAbsolutePath().getParent());
+
+        journal.truncate(0);
+        journal.force(true);
+    }
+
+    private static void forceDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not every platform can open or sync a directory, the rename is as durable as it gets there.
+        }
+    }
+
+    private static void quarantineCorruptSnapshot(Path snapshotFile) throws IOException {
+        if (Files.exists(snapshotFile) && readSnapshot(snapshotFile) == null) {
+            Files.move(snapshotFile, getCorruptFile(snapshotFile), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Platform.runLater(() -> setError(e));
+        } finally {
+            channel = null;
+        }
+    }
+
+    // Format
+
+    private interface RecordWriter {
+        void write(DataOutputStream data) throws IOException;
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, byte kind, RecordWriter writer) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeByte(kind);
+        writer.write(data);
+        data.flush();
+
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        DataOutputStream record = new DataOutputStream(out);
+        record.writeInt(bytes.length);
+        record.write(bytes);
+        record.writeInt((int) crc.getValue());
+        record.flush();
+    }
+
+    static void writeGroupRecord(ByteArrayOutputStream out, int pos, String[] ids, String selectedId)
+            throws IOException {
+        writeRecord(out, GROUP_RECORD, data -> {
+            data.writeByte(pos);
+            data.writeInt(ids.length);
+            int selectedIndex = -1;
+            for (int i = 0; i < ids.length; i++) {
+                data.writeUTF(ids[i]);
+                if (ids[i].equals(selectedId)) selectedIndex = i;
+            }
+            data.writeInt(selectedIndex);
+        });
+    }
+
+    static void writeGroupRemovedRecord(ByteArrayOutputStream out, int pos) throws IOException {
+        writeRecord(out, GROUP_REMOVED_RECORD, data -> data.writeByte(pos));
+    }
+
+    static void writeDividerRecord(ByteArrayOutputStream out, int type, double position) throws IOException {
+        writeRecord(out, DIVIDER_RECORD, data -> {
+            data.writeByte(type);
+            data.writeDouble(position);
+        });
+    }
+
+    public static Path getJournalFile(Path snapshotFile) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal");
+    }
+
+    public static Path getCorruptFile(Path snapshotFile) {
+        return snapshotFile.resolveSibling(snapshotFile.getFileName() + ".corrupt");
+    }
+
+    /**
+     * Reads the snapshot and replays the journal on top of it. A snapshot which cannot be read is skipped, the
+     * journal alone is replayed then.
+     *
+     * @return the last saved state, or {@code null} if nothing was saved yet
+     */
+    public static ViewPaneState load(Path snapshotFile) throws IOException {
+        ViewPaneState state = null;
+        if (Files.exists(snapshotFile)) {
+            state = readSnapshot(snapshotFile);
+        }
+        Path journalFile = getJournalFile(snapshotFile);
+        if (Files.exists(journalFile)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalFile));
+            if (buffer.hasRemaining() && state == null) state = new ViewPaneState();
+            replay(state, buffer);
+        }
+        return state;
+    }
+
+    private static ViewPaneState readSnapshot(Path snapshotFile) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshotFile);
+        try {
+            return ViewPaneState.readBinary(new ByteArrayInputStream(bytes));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void replay(ViewPaneState state, ByteBuffer buffer) throws IOException {
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || buffer.remaining() < length + Integer.BYTES) return;
+
+            int start = buffer.position();
+            crc.reset();
+            crc.update(buffer.array(), start, length);
+            if (buffer.getInt(start + length) != (int) crc.getValue()) return;
+            buffer.position(start + length + Integer.BYTES);
+
+            try {
+                replayRecord(state, new DataInputStream(new ByteArrayInputStream(buffer.array(), start, length)));
+            } catch (IOException e) {
+                // The checksum matches but the record doesn't decode, skip it like an unknown one.
+            }
+        }
+    }
+
+    private static void replayRecord(ViewPaneState state, DataInputStream data) throws IOException {
+        switch (data.readByte()) {
+            case GROUP_RECORD: {
+                int pos = data.readUnsignedByte();
+                String[] ids = ViewPaneState.readTabIds(data);
+                int selectedIndex = data.readInt();
+                if (pos < POSITIONS.length) {
+                    state.setGroup(POSITIONS[pos], ids,
+                            selectedIndex >= 0 && selectedIndex < ids.length ? ids[selectedIndex] : null);
+                }
+                break;
+            }
+            case GROUP_REMOVED_RECORD: {
+                int pos = data.readUnsignedByte();
+                if (pos < POSITIONS.length) state.setGroup(POSITIONS[pos], null, null);
+                break;
+            }
+            case DIVIDER_RECORD: {
+                int type = data.readUnsignedByte();
+                double position = data.readDouble();
+                if (type < DIVIDER_TYPES.length) state.setDividerPosition(DIVIDER_TYPES[type], position);
+                break;
+            }
+            default:
+                // Unknown record from a newer version, skip it.
+                break;
+        }
+    }
+}
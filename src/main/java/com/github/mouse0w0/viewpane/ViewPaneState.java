@@ -0,0 +1,622 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.geometry.EightPos;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An immutable snapshot of the arrangement of a view pane: the tabs of each view group by {@link ViewTab#getId()},
+ * the selected tab of each group and the divider positions. Tabs without id are not captured.
+ */
+public final class ViewPaneState {
+    private static final int MAGIC = 0x56505331; // "VPS1"
+    private static final int VERSION = 1;
+
+    private static final EightPos[] POSITIONS = EightPos.values();
+    private static final DividerType[] DIVIDER_TYPES = DividerType.values();
+
+    private final String[][] tabIds = new String[POSITIONS.length][];
+    private final String[] selectedTabIds = new String[POSITIONS.length];
+    private final double[] dividerPositions = new double[DIVIDER_TYPES.length];
+
+    ViewPaneState() {
+        Arrays.fill(dividerPositions, Double.NaN);
+    }
+
+    public static ViewPaneState capture(ViewPane viewPane) {
+        ViewPaneState state = new ViewPaneState();
+        for (ViewGroup viewGroup : viewPane.getViewGroups()) {
+            state.setGroup(viewGroup.getPos(), captureTabIds(viewGroup), captureSelectedTabId(viewGroup));
+        }
+        for (ViewPane.Divider divider : viewPane.getDividers()) {
+            state.setDividerPosition(divider.getType(), divider.getPosition());
+        }
+        return state;
+    }
+
+    static String[] captureTabIds(ViewGroup viewGroup) {
+        List<String> ids = new ArrayList<>(viewGroup.getTabs().size());
+        for (ViewTab tab : viewGroup.getTabs()) {
+            if (tab.getId() != null) ids.add(tab.getId());
+        }
+        return ids.toArray(new String[0]);
+    }
+
+    static String captureSelectedTabId(ViewGroup viewGroup) {
+        ViewTab selected = viewGroup.getSelectionModel().getSelectedItem();
+        return selected != null ? selected.getId() : null;
+    }
+
+    void setGroup(EightPos pos, String[] ids, String selectedId) {
+        tabIds[pos.ordinal()] = ids;
+        selectedTabIds[pos.ordinal()] = ids != null ? selectedId : null;
+    }
+
+    void setDividerPosition(DividerType type, double position) {
+        // Infinite positions can't be written as JSON, they are dropped like missing ones.
+        dividerPositions[type.ordinal()] = Double.isInfinite(position) ? Double.NaN : position;
+    }
+
+    /**
+     * @return the ids of the tabs at the position, empty if the state has no view group there
+     */
+    public List<String> getTabIds(EightPos pos) {
+        String[] ids = tabIds[pos.ordinal()];
+        return ids != null ? Collections.unmodifiableList(Arrays.asList(ids)) : Collections.emptyList();
+    }
+
+    public String getSelectedTabId(EightPos pos) {
+        return selectedTabIds[pos.ordinal()];
+    }
+
+    /**
+     * @return the position of the divider, {@code NaN} if the state has none
+     */
+    public double getDividerPosition(DividerType type) {
+        return dividerPositions[type.ordinal()];
+    }
+
+    /**
+     * Rearranges the view pane in a single update. Tabs already in the view pane are moved by id, the others are
+     * created by the tab factory, which may return {@code null} to skip a tab. Tabs of the view pane which are
+     * not part of the state are removed.
+     */
+    public void restore(ViewPane viewPane, Function<String, ViewTab> tabFactory) {
+        restore(viewPane, tabFactory, false);
+    }
+
+    /**
+     * @param keepTabsWithoutId whether the tabs without an id, which the state cannot refer to, stay where they
+     *                          are instead of being removed
+     */
+    void restore(ViewPane viewPane, Function<String, ViewTab> tabFactory, boolean keepTabsWithoutId) {
+        viewPane.batch(() -> {
+            restoreGroups(viewPane.getViewGroups(), viewPane::getViewGroup, tabFactory, keepTabsWithoutId);
+            for (int i = 0; i < DIVIDER_TYPES.length; i++) {
+                if (!Double.isNaN(dividerPositions[i])) {
+                    viewPane.getDivider(DIVIDER_TYPES[i]).setPosition(dividerPositions[i]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Moves the tabs of the view groups into place, creating the missing view groups with the group factory.
+     * Kept tabs without an id stay in their group, after the same tab as before or first.
+     */
+    void restoreGroups(List<ViewGroup> viewGroups, Function<EightPos, ViewGroup> groupFactory,
+                       Function<String, ViewTab> tabFactory, boolean keepTabsWithoutId) {
+        Map<String, ViewTab> existing = new HashMap<>();
+        for (ViewGroup viewGroup : viewGroups) {
+            for (ViewTab tab : viewGroup.getTabs()) {
+                if (tab.getId() != null) existing.put(tab.getId(), tab);
+            }
+        }
+
+        List<List<ViewTab>> targets = new ArrayList<>(POSITIONS.length);
+        Set<ViewTab> placed = new HashSet<>();
+        for (int i = 0; i < POSITIONS.length; i++) {
+            List<ViewTab> target = new ArrayList<>();
+            if (tabIds[i] != null) {
+                for (String id : tabIds[i]) {
+                    ViewTab tab = existing.get(id);
+                    if (tab == null && tabFactory != null) tab = tabFactory.apply(id);
+                    if (tab != null && placed.add(tab)) target.add(tab);
+                }
+            }
+            targets.add(target);
+        }
+
+        ViewTab[] keptSelection = new ViewTab[POSITIONS.length];
+        if (keepTabsWithoutId) {
+            for (ViewGroup viewGroup : viewGroups) {
+                int pos = viewGroup.getPos().ordinal();
+                targets.set(pos, insertTabsWithoutId(viewGroup.getTabs(), targets.get(pos)));
+                ViewTab selected = viewGroup.getSelectionModel().getSelectedItem();
+                if (selected != null && selected.getId() == null) keptSelection[pos] = selected;
+            }
+        }
+
+        // Remove the tabs which move or go away first, so that adding a tab never meets it in another group.
+        for (ViewGroup viewGroup : new ArrayList<>(viewGroups)) {
+            List<ViewTab> target = targets.get(viewGroup.getPos().ordinal());
+            if (!viewGroup.getTabs().equals(target)) {
+                Set<ViewTab> kept = new HashSet<>(target);
+                viewGroup.getTabs().removeIf(tab -> !kept.contains(tab));
+            }
+        }
+
+        for (int i = 0; i < POSITIONS.length; i++) {
+            List<ViewTab> target = targets.get(i);
+            if (target.isEmpty() && tabIds[i] == null) continue;
+            ViewGroup viewGroup = groupFactory.apply(POSITIONS[i]);
+            if (!viewGroup.getTabs().equals(target)) moveTabs(viewGroup.getTabs(), target);
+
+            ViewTab selected = selectedTabIds[i] != null ? findTab(selectedTabIds[i], target) : keptSelection[i];
+            if (selected != null) {
+                viewGroup.getSelectionModel().select(selected);
+            } else {
+                viewGroup.getSelectionModel().clearSelection();
+            }
+        }
+    }
+
+    private static List<ViewTab> insertTabsWithoutId(List<ViewTab> tabs, List<ViewTab> target) {
+        List<ViewTab> leading = new ArrayList<>();
+        Map<ViewTab, List<ViewTab>> following = new HashMap<>();
+        Set<ViewTab> targetTabs = new HashSet<>(target);
+        List<ViewTab> insertion = leading;
+        for (ViewTab tab : tabs) {
+            if (tab.getId() == null) {
+                insertion.add(tab);
+            } else if (targetTabs.contains(tab)) {
+                insertion = following.computeIfAbsent(tab, key -> new ArrayList<>());
+            }
+        }
+        if (leading.isEmpty() && following.isEmpty()) return target;
+
+        List<ViewTab> result = new ArrayList<>(tabs.size() + target.size());
+        result.addAll(leading);
+        for (ViewTab tab : target) {
+            result.add(tab);
+            List<ViewTab> after = following.get(tab);
+            if (after != null) result.addAll(after);
+        }
+        return result;
+    }
+
+    /**
+     * Brings the tabs into the order of the target with single insertions and removals instead of replacing the
+     * whole list, so that the skin keeps the buttons of the tabs which stay in place.
+     */
+    private static void moveTabs(List<ViewTab> tabs, List<ViewTab> target) {
+        for (int i = 0; i < target.size(); i++) {
+            ViewTab tab = target.get(i);
+            if (i < tabs.size() && tabs.get(i) == tab) continue;
+            int index = tabs.indexOf(tab);
+            if (index > i) tabs.remove(index);
+            tabs.add(i, tab);
+        }
+        if (tabs.size() > target.size()) tabs.subList(target.size(), tabs.size()).clear();
+    }
+
+    private static ViewTab findTab(String id, List<ViewTab> tabs) {
+        for (ViewTab tab : tabs) {
+            if (id.equals(tab.getId())) return tab;
+        }
+        return null;
+    }
+
+    // Binary
+
+    public byte[] toBinary() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeBinary(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public void writeBinary(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+
+        int groupCount = 0;
+        for (String[] ids : tabIds) if (ids != null) groupCount++;
+        data.writeByte(groupCount);
+        for (int i = 0; i < POSITIONS.length; i++) {
+            String[] ids = tabIds[i];
+            if (ids == null) continue;
+            data.writeByte(i);
+            data.writeInt(ids.length);
+            int selectedIndex = -1;
+            for (int j = 0; j < ids.length; j++) {
+                data.writeUTF(ids[j]);
+                if (ids[j].equals(selectedTabIds[i])) selectedIndex = j;
+            }
+            data.writeInt(selectedIndex);
+        }
+
+        int dividerCount = 0;
+        for (double position : dividerPositions) if (!Double.isNaN(position)) dividerCount++;
+        data.writeByte(dividerCount);
+        for (int i = 0; i < DIVIDER_TYPES.length; i++) {
+            if (Double.isNaN(dividerPositions[i])) continue;
+            data.writeByte(i);
+            data.writeDouble(dividerPositions[i]);
+        }
+        data.flush();
+    }
+
+    public static ViewPaneState fromBinary(byte[] bytes) {
+        try {
+            return readBinary(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ViewPaneState readBinary(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) throw new IOException("Not a view pane state");
+        int version = data.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported view pane state version " + version);
+
+        ViewPaneState state = new ViewPaneState();
+        int groupCount = data.readUnsignedByte();
+        for (int i = 0; i < groupCount; i++) {
+            int pos = checkIndex(data.readUnsignedByte(), POSITIONS.length);
+            String[] ids = readTabIds(data);
+            int selectedIndex = data.readInt();
+            state.tabIds[pos] = ids;
+            state.selectedTabIds[pos] = selectedIndex >= 0 && selectedIndex < ids.length ? ids[selectedIndex] : null;
+        }
+
+        int dividerCount = data.readUnsignedByte();
+        for (int i = 0; i < dividerCount; i++) {
+            int type = checkIndex(data.readUnsignedByte(), DIVIDER_TYPES.length);
+            state.setDividerPosition(DIVIDER_TYPES[type], data.readDouble());
+        }
+        return state;
+    }
+
+    /**
+     * Reads a tab count followed by the ids. The ids are collected as they are read, so that a corrupt count
+     * fails on the missing bytes instead of allocating an array of that size.
+     */
+    static String[] readTabIds(DataInput data) throws IOException {
+        int tabCount = data.readInt();
+        if (tabCount < 0) throw new IOException("Invalid tab count " + tabCount);
+        List<String> ids = new ArrayList<>(Math.min(tabCount, 64));
+        for (int i = 0; i < tabCount; i++) {
+            ids.add(data.readUTF());
+        }
+        return ids.toArray(new String[0]);
+    }
+
+    private static int checkIndex(int index, int length) throws IOException {
+        if (index >= length) throw new IOException("Invalid index " + index);
+        return index;
+    }
+
+    // JSON
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"version\": ").append(VERSION).append(",\n  \"groups\": {");
+        boolean first = true;
+        for (int i = 0; i < POSITIONS.length; i++) {
+            String[] ids = tabIds[i];
+            if (ids == null) continue;
+            sb.append(first ? "\n" : ",\n").append("    ");
+            first = false;
+            Json.writeString(sb, POSITIONS[i].name());
+            sb.append(": {\"tabs\": [");
+            for (int j = 0; j < ids.length; j++) {
+                if (j > 0) sb.append(", ");
+                Json.writeString(sb, ids[j]);
+            }
+            sb.append("], \"selected\": ");
+            Json.writeString(sb, selectedTabIds[i]);
+            sb.append('}');
+        }
+        sb.append(first ? "},\n" : "\n  },\n").append("  \"dividers\": {");
+        first = true;
+        for (int i = 0; i < DIVIDER_TYPES.length; i++) {
+            if (Double.isNaN(dividerPositions[i])) continue;
+            sb.append(first ? "\n" : ",\n").append("    ");
+            first = false;
+            Json.writeString(sb, DIVIDER_TYPES[i].name());
+            sb.append(": ").append(dividerPositions[i]);
+        }
+        sb.append(first ? "}\n}" : "\n  }\n}");
+        return sb.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a valid state, the message names the offending field
+     */
+    public static ViewPaneState fromJson(String json) {
+        Map<String, Object> object = asObject(new Json(json).parse(), "$");
+        Object version = object.get("version");
+        if (!(version instanceof Number) || ((Number) version).doubleValue() != VERSION) {
+            throw new IllegalArgumentException("Unsupported view pane state version " + version);
+        }
+
+        ViewPaneState state = new ViewPaneState();
+        Object groups = object.get("groups");
+        if (groups != null) {
+            for (Map.Entry<String, Object> entry : asObject(groups, "$.groups").entrySet()) {
+                String path = "$.groups." + entry.getKey();
+                EightPos pos = asEnum(EightPos.class, entry.getKey(), path);
+                Map<String, Object> group = asObject(entry.getValue(), path);
+                List<Object> tabs = asArray(group.get("tabs"), path + ".tabs");
+                String[] ids = new String[tabs.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = asString(tabs.get(i), path + ".tabs[" + i + "]", false);
+                }
+                state.setGroup(pos, ids, asString(group.get("selected"), path + ".selected", true));
+            }
+        }
+        Object dividers = object.get("dividers");
+        if (dividers != null) {
+            for (Map.Entry<String, Object> entry : asObject(dividers, "$.dividers").entrySet()) {
+                String path = "$.dividers." + entry.getKey();
+                DividerType type = asEnum(DividerType.class, entry.getKey(), path);
+                if (!(entry.getValue() instanceof Number)) throw invalid(path, "a number");
+                state.setDividerPosition(type, ((Number) entry.getValue()).doubleValue());
+            }
+        }
+        return state;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asObject(Object value, String path) {
+        if (!(value instanceof Map)) throw invalid(path, "an object");
+        return (Map<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asArray(Object value, String path) {
+        if (!(value instanceof List)) throw invalid(path, "an array");
+        return (List<Object>) value;
+    }
+
+    private static String asString(Object value, String path, boolean nullable) {
+        if (value == null && nullable) return null;
+        if (!(value instanceof String)) throw invalid(path, nullable ? "a string or null" : "a string");
+        return (String) value;
+    }
+
+    private static <E extends Enum<E>> E asEnum(Class<E> type, String name, String path) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid view pane state at " + path + ": unknown " + type.getSimpleName());
+        }
+    }
+
+    private static IllegalArgumentException invalid(String path, String expected) {
+        return new IllegalArgumentException("Invalid view pane state at " + path + ": expected " + expected);
+    }
+
+    /**
+     * A minimal JSON reader and writer for the state format.
+     */
+    private static final class Json {
+        private final String text;
+        private int index;
+
+        Json(String text) {
+            this.text = text;
+        }
+
+        static void writeString(StringBuilder sb, String value) {
+            if (value == null) {
+                sb.append("null");
+                return;
+            }
+            sb.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        sb.append("\\\"");
+                        break;
+                    case '\\':
+                        sb.append("\\\\");
+                        break;
+                    case '\n':
+                        sb.append("\\n");
+                        break;
+                    case '\r':
+                        sb.append("\\r");
+                        break;
+                    case '\t':
+                        sb.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                }
+            }
+            sb.append('"');
+        }
+
+        Object parse() {
+            Object value = parseValue();
+            skipWhitespace();
+            if (index != text.length()) throw error("Unexpected trailing content");
+            return value;
+        }
+
+        private Object parseValue() {
+            skipWhitespace();
+            if (index >= text.length()) throw error("Unexpected end");
+            char c = text.charAt(index);
+            switch (c) {
+                case '{':
+                    return parseObject();
+                case '[':
+                    return parseArray();
+                case '"':
+                    return parseString();
+                default:
+                    if (text.startsWith("null", index)) {
+                        index += 4;
+                        return null;
+                    }
+                    if (text.startsWith("true", index)) {
+                        index += 4;
+                        return Boolean.TRUE;
+                    }
+                    if (text.startsWith("false", index)) {
+                        index += 5;
+                        return Boolean.FALSE;
+                    }
+                    return parseNumber();
+            }
+        }
+
+        private Map<String, Object> parseObject() {
+            Map<String, Object> object = new HashMap<>();
+            index++;
+            skipWhitespace();
+            if (peek() == '}') {
+                index++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') throw error("Expected a string");
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                object.put(key, parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    index++;
+                } else {
+                    expect('}');
+                    return object;
+                }
+            }
+        }
+
+        private List<Object> parseArray() {
+            List<Object> array = new ArrayList<>();
+            index++;
+            skipWhitespace();
+            if (peek() == ']') {
+                index++;
+                return array;
+            }
+            while (true) {
+                array.add(parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    index++;
+                } else {
+                    expect(']');
+                    return array;
+                }
+            }
+        }
+
+        private String parseString() {
+            StringBuilder sb = new StringBuilder();
+            index++;
+            while (true) {
+                if (index >= text.length()) throw error("Unterminated string");
+                char c = text.charAt(index++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (index >= text.length()) throw error("Unterminated string");
+                char escape = text.charAt(index++);
+                switch (escape) {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (index + 4 > text.length()) throw error("Invalid escape");
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(index, index + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid escape");
+                        }
+                        index += 4;
+                        break;
+                    default:
+                        sb.append(escape);
+                }
+            }
+        }
+
+        private Number parseNumber() {
+            int start = index;
+            while (index < text.length() && "+-0123456789.eE".indexOf(text.charAt(index)) >= 0) index++;
+            if (start == index) throw error("Unexpected character");
+            try {
+                return Double.valueOf(text.substring(start, index));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        private void skipWhitespace() {
+            while (index < text.length() && Character.isWhitespace(text.charAt(index))) index++;
+        }
+
+        private char peek() {
+            if (index >= text.length()) throw error("Unexpected end");
+            return text.charAt(index);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error("Expected '" + c + "'");
+            index++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + index);
+        }
+    }
+}
@@ -1,20 +1,58 @@
 package com.github.mouse0w0.viewpane;
 
+import com.sun.javafx.event.EventHandlerManager;
+import javafx.animation.Animation;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
+import javafx.event.Event;
+import javafx.event.EventDispatchChain;
 import javafx.event.EventHandler;
+import javafx.event.EventTarget;
+import javafx.event.EventType;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.SingleSelectionModel;
 import javafx.scene.input.ContextMenuEvent;
+import javafx.stage.Window;
+import javafx.util.Callback;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
-public class ViewTab {
+public class ViewTab implements EventTarget {
 
     public static final Object VIEW_TAB_KEY = new Object();
 
+    /**
+     * Fired after the content has been created by the content factory, the application can restore the
+     * state saved on {@link #CONTENT_UNLOADING_EVENT}.
+     */
+    public static final EventType<Event> CONTENT_LOADED_EVENT = new EventType<>(Event.ANY, "VIEW_TAB_CONTENT_LOADED");
+
+    /**
+     * Fired before the content is released, the content is still available to save its state.
+     */
+    public static final EventType<Event> CONTENT_UNLOADING_EVENT = new EventType<>(Event.ANY, "VIEW_TAB_CONTENT_UNLOADING");
+
+    /**
+     * Fired when the content becomes showing.
+     */
+    public static final EventType<Event> SHOWN_EVENT = new EventType<>(Event.ANY, "VIEW_TAB_SHOWN");
+
+    /**
+     * Fired when the content stops showing.
+     */
+    public static final EventType<Event> HIDDEN_EVENT = new EventType<>(Event.ANY, "VIEW_TAB_HIDDEN");
+
     public static ViewTab getViewTab(Node content) {
         if (content != null && content.hasProperties()) {
             return (ViewTab) content.getProperties().get(VIEW_TAB_KEY);
@@ -69,6 +107,26 @@ public class ViewTab {
         return viewGroup == null ? null : viewGroup.get();
     }
 
+    private StringProperty id;
+
+    /**
+     * The stable identifier of the tab, used to save and restore the arrangement of a view pane.
+     */
+    public final StringProperty idProperty() {
+        if (id == null) {
+            id = new SimpleStringProperty(this, "id");
+        }
+        return id;
+    }
+
+    public final String getId() {
+        return id == null ? null : id.get();
+    }
+
+    public final void setId(String value) {
+        idProperty().set(value);
+    }
+
     private StringProperty text;
 
     public final StringProperty textProperty() {
@@ -113,13 +171,24 @@ public class ViewTab {
                     Node oldValue = get();
                     if (oldValue != null) {
                         oldValue.getProperties().remove(VIEW_TAB_KEY);
+                        oldValue.parentProperty().removeListener(showingListener);
+                        oldValue.sceneProperty().removeListener(showingListener);
+                        oldValue.visibleProperty().removeListener(showingListener);
                     }
 
                     super.set(newValue);
 
+                    if (newValue != cellContent) {
+                        cellFactory = null;
+                        cellContent = null;
+                    }
                     if (newValue != null) {
                         newValue.getProperties().put(VIEW_TAB_KEY, ViewTab.this);
+                        newValue.parentProperty().addListener(showingListener);
+                        newValue.sceneProperty().addListener(showingListener);
+                        newValue.visibleProperty().addListener(showingListener);
                     }
+                    updateShowing();
                 }
             };
         }
@@ -134,6 +203,198 @@ public class ViewTab {
         contentProperty().set(value);
     }
 
+    private ObjectProperty<Callback<ViewTab, Node>> contentFactory;
+
+    /**
+     * The factory used to create the content the first time it is needed, usually when the tab is selected.
+     */
+    public final ObjectProperty<Callback<ViewTab, Node>> contentFactoryProperty() {
+        if (contentFactory == null) {
+            contentFactory = new SimpleObjectProperty<>(this, "contentFactory");
+        }
+        return contentFactory;
+    }
+
+    public final Callback<ViewTab, Node> getContentFactory() {
+        return contentFactory == null ? null : contentFactory.get();
+    }
+
+    public final void setContentFactory(Callback<ViewTab, Node> value) {
+        contentFactoryProperty().set(value);
+    }
+
+    private ObjectProperty<AsyncContentFactory> asyncContentFactory;
+
+    /**
+     * The factory used to create the content in the background, it is preferred over the content factory
+     * when the view pane loads the content.
+     */
+    public final ObjectProperty<AsyncContentFactory> asyncContentFactoryProperty() {
+        if (asyncContentFactory == null) {
+            asyncContentFactory = new SimpleObjectProperty<>(this, "asyncContentFactory");
+        }
+        return asyncContentFactory;
+    }
+
+    public final AsyncContentFactory getAsyncContentFactory() {
+        return asyncContentFactory == null ? null : asyncContentFactory.get();
+    }
+
+    public final void setAsyncContentFactory(AsyncContentFactory value) {
+        asyncContentFactoryProperty().set(value);
+    }
+
+    private CompletableFuture<Node> pendingContent;
+
+    /**
+     * @return whether the content can be created again after it has been unloaded, by the content factory or by
+     * the async content factory
+     */
+    public final boolean isContentRebuildable() {
+        return getContentFactory() != null || getAsyncContentFactory() != null;
+    }
+
+    public final boolean isContentLoaded() {
+        return getContent() != null;
+    }
+
+    /**
+     * Creates the content with the content factory if it has not been created yet.
+     *
+     * @return the content, or {@code null} if there is neither content nor content factory
+     */
+    public final Node loadContent() {
+        Node content = getContent();
+        if (content == null) {
+            Callback<ViewTab, Node> factory = getContentFactory();
+            if (factory != null) {
+                content = factory.call(this);
+                setContent(content);
+                if (factory instanceof ViewCellFactory) {
+                    cellFactory = (ViewCellFactory<?>) factory;
+                    cellContent = content;
+                }
+                if (content != null) Event.fireEvent(this, new Event(this, this, CONTENT_LOADED_EVENT));
+            }
+        }
+        return content;
+    }
+
+    public final boolean isContentLoading() {
+        return pendingContent != null;
+    }
+
+    /**
+     * Creates the content with the async content factory if it has not been created yet, falls back to
+     * {@link #loadContent()} without one. Must be called on the JavaFX Application Thread, the content is
+     * set and the returned future completed on it.
+     */
+    public final CompletableFuture<Node> loadContentAsync(Executor executor) {
+        Node content = getContent();
+        if (content != null) return CompletableFuture.completedFuture(content);
+        if (pendingContent != null) return pendingContent;
+
+        AsyncContentFactory factory = getAsyncContentFactory();
+        if (factory == null) return CompletableFuture.completedFuture(loadContent());
+
+        setContentLoadError(null);
+        CompletableFuture<Node> future;
+        try {
+            future = factory.createContent(this, executor);
+            if (future == null) throw new NullPointerException("The async content factory returned no future");
+        } catch (RuntimeException e) {
+            setContentLoadError(e);
+            CompletableFuture<Node> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+
+        CompletableFuture<Node> result = new CompletableFuture<>();
+        pendingContent = result;
+        result.whenComplete((node, throwable) -> {
+            if (result.isCancelled()) future.cancel(true);
+        });
+        future.whenComplete((node, throwable) -> Platform.runLater(() -> {
+            if (pendingContent != result) return;
+            pendingContent = null;
+            if (throwable != null) {
+                setContentLoadError(throwable instanceof CompletionException && throwable.getCause() != null ?
+                        throwable.getCause() : throwable);
+                result.completeExceptionally(throwable);
+                return;
+            }
+            if (!result.isCancelled() && getContent() == null && node != null) {
+                setContent(node);
+                Event.fireEvent(this, new Event(this, this, CONTENT_LOADED_EVENT));
+            }
+            result.complete(getContent());
+        }));
+        return result;
+    }
+
+    private ReadOnlyObjectWrapper<Throwable> contentLoadError;
+
+    private ReadOnlyObjectWrapper<Throwable> contentLoadErrorPropertyImpl() {
+        if (contentLoadError == null) {
+            contentLoadError = new ReadOnlyObjectWrapper<>(this, "contentLoadError");
+        }
+        return contentLoadError;
+    }
+
+    private void setContentLoadError(Throwable value) {
+        if (value != null || contentLoadError != null) contentLoadErrorPropertyImpl().set(value);
+    }
+
+    /**
+     * The failure of the last background creation of the content, cleared when the content is loaded again.
+     */
+    public final ReadOnlyObjectProperty<Throwable> contentLoadErrorProperty() {
+        return contentLoadErrorPropertyImpl().getReadOnlyProperty();
+    }
+
+    public final Throwable getContentLoadError() {
+        return contentLoadError == null ? null : contentLoadError.get();
+    }
+
+    /**
+     * Cancels the pending background creation of the content, a late result is discarded.
+     */
+    public final void cancelContentLoading() {
+        CompletableFuture<Node> pending = pendingContent;
+        if (pending != null) {
+            pendingContent = null;
+            pending.cancel(true);
+        }
+    }
+
+    /**
+     * Releases the content so that it is recreated by the content factory or the async content factory when it is
+     * needed again.
+     *
+     * @return {@code true} if the content has been released
+     */
+    public final boolean unloadContent() {
+        Node content = getContent();
+        if (content == null || !isContentRebuildable()) return false;
+        Event.fireEvent(this, new Event(this, this, CONTENT_UNLOADING_EVENT));
+        ViewCellFactory<?> factory = content == cellContent ? cellFactory : null;
+        setContent(null);
+        if (factory != null) factory.release(content, this);
+        return true;
+    }
+
+    private ViewCellFactory<?> cellFactory;
+    private Node cellContent;
+
+    /**
+     * Returns the content to the pool of the {@link ViewCellFactory} which created it.
+     *
+     * @return {@code true} if the content came from a cell factory and has been released
+     */
+    public final boolean recycleContent() {
+        return cellContent != null && getContent() == cellContent && unloadContent();
+    }
+
     private ObjectProperty<ContextMenu> contextMenu;
 
     public final ObjectProperty<ContextMenu> contextMenuProperty() {
@@ -168,6 +429,50 @@ public class ViewTab {
         onContextMenuRequestedProperty().set(onContextMenuRequested);
     }
 
+    private ObjectProperty<EventHandler<Event>> onContentLoaded;
+
+    public final ObjectProperty<EventHandler<Event>> onContentLoadedProperty() {
+        if (onContentLoaded == null) {
+            onContentLoaded = new SimpleObjectProperty<EventHandler<Event>>(this, "onContentLoaded") {
+                @Override
+                protected void invalidated() {
+                    eventHandlerManager.setEventHandler(CONTENT_LOADED_EVENT, get());
+                }
+            };
+        }
+        return onContentLoaded;
+    }
+
+    public final EventHandler<Event> getOnContentLoaded() {
+        return onContentLoaded == null ? null : onContentLoaded.get();
+    }
+
+    public final void setOnContentLoaded(EventHandler<Event> value) {
+        onContentLoadedProperty().set(value);
+    }
+
+    private ObjectProperty<EventHandler<Event>> onContentUnloading;
+
+    public final ObjectProperty<EventHandler<Event>> onContentUnloadingProperty() {
+        if (onContentUnloading == null) {
+            onContentUnloading = new SimpleObjectProperty<EventHandler<Event>>(this, "onContentUnloading") {
+                @Override
+                protected void invalidated() {
+                    eventHandlerManager.setEventHandler(CONTENT_UNLOADING_EVENT, get());
+                }
+            };
+        }
+        return onContentUnloading;
+    }
+
+    public final EventHandler<Event> getOnContentUnloading() {
+        return onContentUnloading == null ? null : onContentUnloading.get();
+    }
+
+    public final void setOnContentUnloading(EventHandler<Event> value) {
+        onContentUnloadingProperty().set(value);
+    }
+
     private BooleanProperty selected;
 
     public final BooleanProperty selectedProperty() {
@@ -184,6 +489,7 @@ public class ViewTab {
                             selectionModel.clearSelection();
                         }
                     }
+                    updateShowing();
                 }
             };
         }
@@ -198,6 +504,204 @@ public class ViewTab {
         selectedProperty().set(selected);
     }
 
+    private ReadOnlyBooleanWrapper showing;
+
+    private ReadOnlyBooleanWrapper showingPropertyImpl() {
+        if (showing == null) {
+            showing = new ReadOnlyBooleanWrapper(this, "showing");
+        }
+        return showing;
+    }
+
+    /**
+     * Whether the tab is selected and its content is displayed: the content and all its ancestors are visible and
+     * its window is showing.
+     */
+    public final ReadOnlyBooleanProperty showingProperty() {
+        return showingPropertyImpl().getReadOnlyProperty();
+    }
+
+    public final boolean isShowing() {
+        return showing != null && showing.get();
+    }
+
+    private ReadOnlyBooleanWrapper active;
+
+    private ReadOnlyBooleanWrapper activePropertyImpl() {
+        if (active == null) {
+            active = new ReadOnlyBooleanWrapper(this, "active");
+        }
+        return active;
+    }
+
+    /**
+     * Whether the content is showing and contains the focus owner of its scene.
+     */
+    public final ReadOnlyBooleanProperty activeProperty() {
+        return activePropertyImpl().getReadOnlyProperty();
+    }
+
+    public final boolean isActive() {
+        return active != null && active.get();
+    }
+
+    private final InvalidationListener showingListener = observable -> updateShowing();
+    private final InvalidationListener focusOwnerListener = observable -> updateActive();
+    private Scene focusScene;
+
+    // The ancestors, scene and window of the content of a selected tab, observed for the showing state.
+    private final List<Node> showingAncestors = new ArrayList<>();
+    private Scene showingScene;
+    private Window showingWindow;
+
+    private void updateShowing() {
+        Node content = getContent();
+        boolean selected = isSelected() && content != null;
+        observeShowing(selected ? content : null);
+        boolean value = selected && content.getParent() != null && isTreeShowing(content);
+
+        Scene scene = value ? content.getScene() : null;
+        if (focusScene != scene) {
+            if (focusScene != null) focusScene.focusOwnerProperty().removeListener(focusOwnerListener);
+            focusScene = scene;
+            if (scene != null) scene.focusOwnerProperty().addListener(focusOwnerListener);
+        }
+
+        if (value != isShowing()) {
+            showingPropertyImpl().set(value);
+            updateAnimations(value);
+            Event.fireEvent(this, new Event(this, this, value ? SHOWN_EVENT : HIDDEN_EVENT));
+        }
+        updateActive();
+    }
+
+    private void observeShowing(Node content) {
+        for (Node node : showingAncestors) {
+            node.parentProperty().removeListener(showingListener);
+            node.visibleProperty().removeListener(showingListener);
+        }
+        showingAncestors.clear();
+        if (content != null) {
+            for (Node node = content.getParent(); node != null; node = node.getParent()) {
+                node.parentProperty().addListener(showingListener);
+                node.visibleProperty().addListener(showingListener);
+                showingAncestors.add(node);
+            }
+        }
+
+        Scene scene = content != null ? content.getScene() : null;
+        if (showingScene != scene) {
+            if (showingScene != null) showingScene.windowProperty().removeListener(showingListener);
+            showingScene = scene;
+            if (scene != null) scene.windowProperty().addListener(showingListener);
+        }
+        Window window = scene != null ? scene.getWindow() : null;
+        if (showingWindow != window) {
+            if (showingWindow != null) showingWindow.showingProperty().removeListener(showingListener);
+            showingWindow = window;
+            if (window != null) window.showingProperty().addListener(showingListener);
+        }
+    }
+
+    private static boolean isTreeShowing(Node content) {
+        for (Node node = content; node != null; node = node.getParent()) {
+            if (!node.isVisible()) return false;
+        }
+        Scene scene = content.getScene();
+        Window window = scene != null ? scene.getWindow() : null;
+        return window != null && window.isShowing();
+    }
+
+    private void updateActive() {
+        boolean value = false;
+        if (focusScene != null) {
+            Node content = getContent();
+            Node node = focusScene.getFocusOwner();
+            while (node != null && node != content) node = node.getParent();
+            value = node != null;
+        }
+        if (value != isActive()) activePropertyImpl().set(value);
+    }
+
+    private ObjectProperty<EventHandler<Event>> onShown;
+
+    public final ObjectProperty<EventHandler<Event>> onShownProperty() {
+        if (onShown == null) {
+            onShown = new SimpleObjectProperty<EventHandler<Event>>(this, "onShown") {
+                @Override
+                protected void invalidated() {
+                    eventHandlerManager.setEventHandler(SHOWN_EVENT, get());
+                }
+            };
+        }
+        return onShown;
+    }
+
+    public final EventHandler<Event> getOnShown() {
+        return onShown == null ? null : onShown.get();
+    }
+
+    public final void setOnShown(EventHandler<Event> value) {
+        onShownProperty().set(value);
+    }
+
+    private ObjectProperty<EventHandler<Event>> onHidden;
+
+    public final ObjectProperty<EventHandler<Event>> onHiddenProperty() {
+        if (onHidden == null) {
+            onHidden = new SimpleObjectProperty<EventHandler<Event>>(this, "onHidden") {
+                @Override
+                protected void invalidated() {
+                    eventHandlerManager.setEventHandler(HIDDEN_EVENT, get());
+                }
+            };
+        }
+        return onHidden;
+    }
+
+    public final EventHandler<Event> getOnHidden() {
+        return onHidden == null ? null : onHidden.get();
+    }
+
+    public final void setOnHidden(EventHandler<Event> value) {
+        onHiddenProperty().set(value);
+    }
+
+    // Animations
+    private ObservableList<Animation> animations;
+    private List<Animation> pausedAnimations;
+
+    /**
+     * The animations of the content. The running ones are paused while the tab is not showing and resumed
+     * when it is shown again.
+     */
+    public final ObservableList<Animation> getAnimations() {
+        if (animations == null) {
+            animations = FXCollections.observableArrayList();
+        }
+        return animations;
+    }
+
+    private void updateAnimations(boolean showing) {
+        if (showing) {
+            if (pausedAnimations == null) return;
+            for (Animation animation : pausedAnimations) {
+                if (animation.getStatus() == Animation.Status.PAUSED && animations.contains(animation)) {
+                    animation.play();
+                }
+            }
+            pausedAnimations.clear();
+        } else if (animations != null) {
+            for (Animation animation : animations) {
+                if (animation.getStatus() == Animation.Status.RUNNING) {
+                    animation.pause();
+                    if (pausedAnimations == null) pausedAnimations = new ArrayList<>();
+                    pausedAnimations.add(animation);
+                }
+            }
+        }
+    }
+
     // Properties
     private ObservableMap<Object, Object> properties;
 
@@ -222,4 +726,20 @@ public class ViewTab {
     public Object getUserData() {
         return getProperties().get(USER_DATA_KEY);
     }
+
+    // Events
+    private final EventHandlerManager eventHandlerManager = new EventHandlerManager(this);
+
+    @Override
+    public EventDispatchChain buildEventDispatchChain(EventDispatchChain tail) {
+        return tail.prepend(eventHandlerManager);
+    }
+
+    public final <E extends Event> void addEventHandler(EventType<E> eventType, EventHandler<? super E> eventHandler) {
+        eventHandlerManager.addEventHandler(eventType, eventHandler);
+    }
+
+    public final <E extends Event> void removeEventHandler(EventType<E> eventType, EventHandler<? super E> eventHandler) {
+        eventHandlerManager.removeEventHandler(eventType, eventHandler);
+    }
 }
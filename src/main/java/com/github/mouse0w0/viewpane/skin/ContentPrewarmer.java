@@ -0,0 +1,95 @@
+package com.github.mouse0w0.viewpane.skin;
+
+import com.github.mouse0w0.viewpane.ViewTab;
+import javafx.animation.PauseTransition;
+import javafx.scene.Node;
+import javafx.util.Duration;
+
+import java.util.ArrayDeque;
+
+/**
+ * Creates the content of a tab ahead of time while the pointer rests on its button or the button is focused,
+ * so that selecting the tab only has to attach an existing node.
+ */
+final class ContentPrewarmer {
+    private static final Duration DELAY = Duration.millis(300);
+    private static final Duration TIMEOUT = Duration.seconds(5);
+    private static final int MAX_CONCURRENT = 2;
+    private static final int MAX_PENDING = 4;
+
+    private final ViewPaneSkin viewPaneSkin;
+    private final PauseTransition delay = new PauseTransition(DELAY);
+
+    private ViewTab candidate;
+    private int running;
+    // The tabs waiting for a free slot, the most recently requested last.
+    private final ArrayDeque<ViewTab> pending = new ArrayDeque<>(MAX_PENDING);
+
+    ContentPrewarmer(ViewPaneSkin viewPaneSkin) {
+        this.viewPaneSkin = viewPaneSkin;
+        delay.setOnFinished(event -> {
+            ViewTab tab = candidate;
+            candidate = null;
+            if (tab != null) prewarm(tab);
+        });
+    }
+
+    public void request(ViewTab tab) {
+        if (!viewPaneSkin.getSkinnable().isPrewarmContent() || !needsPrewarm(tab)) return;
+        candidate = tab;
+        delay.playFromStart();
+    }
+
+    public void cancel(ViewTab tab) {
+        if (candidate == tab) {
+            candidate = null;
+            delay.stop();
+        }
+    }
+
+    private void prewarm(ViewTab tab) {
+        if (!needsPrewarm(tab)) return;
+
+        if (tab.getAsyncContentFactory() == null) {
+            finish(tab, tab.loadContent());
+            return;
+        }
+
+        if (running >= MAX_CONCURRENT) {
+            pending.remove(tab);
+            if (pending.size() == MAX_PENDING) pending.poll();
+            pending.add(tab);
+            return;
+        }
+        running++;
+        PauseTransition timeout = new PauseTransition(TIMEOUT);
+        timeout.setOnFinished(event -> {
+            // A tab selected in the meantime keeps loading behind its placeholder.
+            if (!tab.isSelected()) tab.cancelContentLoading();
+        });
+        timeout.play();
+        tab.loadContentAsync(viewPaneSkin.getSkinnable().getContentExecutor()).whenComplete((content, throwable) -> {
+            timeout.stop();
+            running--;
+            if (content != null) finish(tab, content);
+            prewarmPending();
+        });
+    }
+
+    private void prewarmPending() {
+        while (running < MAX_CONCURRENT && !pending.isEmpty()) {
+            prewarm(pending.pollLast());
+        }
+    }
+
+    private void finish(ViewTab tab, Node content) {
+        if (content == null || tab.isSelected() || content.getParent() != null || tab.getViewGroup() == null) return;
+        viewPaneSkin.divisionArea.prewarm(tab.getViewGroup().getPos(), content);
+        viewPaneSkin.tabHidden(tab);
+    }
+
+    private static boolean needsPrewarm(ViewTab tab) {
+        return tab.getViewGroup() != null && !tab.isSelected() && !tab.isContentLoaded() && !tab.isContentLoading() &&
+                tab.isContentRebuildable();
+    }
+}
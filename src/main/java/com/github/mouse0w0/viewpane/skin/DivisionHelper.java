@@ -3,298 +3,761 @@ package com.github.mouse0w0.viewpane.skin;
 import com.github.mouse0w0.viewpane.DividerType;
 import com.github.mouse0w0.viewpane.geometry.EightPos;
 import javafx.geometry.Orientation;
-import javafx.geometry.Side;
 
-final class DivisionHelper {
-    public static final class Container {
-        ViewPaneSkin.Container peer;
+import java.util.Arrays;
+
+/**
+ * Node-free geometry solver of the division area.
+ * <p>
+ * The area is a tree of splits. Every split lays out any number of children (containers or nested
+ * splits) along its orientation, separated by dividers whose positions are fractions of the split size.
+ * A change of the size of a split keeps the positions, or is distributed by the resize weights of its dividers
+ * or by the weights of its children.
+ * Containers, dividers and splits are addressed by the indices returned when they are created. Inputs
+ * are plain numbers and results are kept in preallocated nodes, so a layout pass allocates nothing, can
+ * run off the FX thread, and only revisits the branches whose inputs or bounds changed.
+ * <p>
+ * A tree is built once with the {@code create*}, {@code add*} and {@link #setRoot(int)} methods. Before each
+ * pass the inputs are pushed with {@link #setContainer(int, boolean, double, double)},
+ * {@link #setDivider(int, boolean, double, double)} and {@link #setResizeWeight(int, double)}, then
+ * {@link #layout(double, double, double, double, boolean)} computes the bounds, which are read back with the
+ * {@code get*} methods. The positions adjusted by the pass, see {@link #getPosition(int)}, are meant to be pushed
+ * as the input of the next one. An instance is not thread-safe, but it may be used by any single thread.
+ * <p>
+ * {@link #createEightPosLayout()} builds the tree used by {@link ViewPaneSkin}, where containers are
+ * addressed by {@link EightPos#ordinal()} plus {@link #CENTER} and dividers by {@link DividerType#ordinal()}.
+ */
+public final class DivisionHelper {
+    public static final int CENTER = 8;
+
+    private abstract static class LayoutNode {
+        LayoutNode parent;
+
+        boolean dirty = true;
+        double x;
+        double y;
+        double width;
+        double height;
+
+        void markDirty() {
+            // Ancestors of a dirty node are always dirty, so the walk can stop at the first dirty one.
+            for (LayoutNode node = this; node != null && !node.dirty; node = node.parent) {
+                node.dirty = true;
+            }
+        }
+
+        void markParentDirty() {
+            if (parent != null) parent.markDirty();
+        }
+
+        final boolean needsLayout(double x, double y, double width, double height) {
+            if (!dirty && x == this.x && y == this.y && width == this.width && height == this.height) {
+                return false;
+            }
+            dirty = false;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            return true;
+        }
+
+        abstract boolean isManaged();
+
+        abstract double minWidth();
+
+        abstract double minHeight();
+
+        abstract void layout(double x, double y, double width, double height);
+
+        final double minLength(Orientation orientation) {
+            return orientation == Orientation.HORIZONTAL ? minWidth() : minHeight();
+        }
+    }
+
+    private static final class Container extends LayoutNode {
+        boolean managed;
+        double minWidth;
+        double minHeight;
+        boolean changed;
+
+        @Override
+        boolean isManaged() {
+            return managed;
+        }
 
-        public boolean isManaged() {
-            return peer != null && peer.isManaged();
+        @Override
+        double minWidth() {
+            return managed ? minWidth : 0;
         }
 
-        public double minWidth() {
-            return isManaged() ? peer.minWidth(-1) : 0;
+        @Override
+        double minHeight() {
+            return managed ? minHeight : 0;
         }
 
-        public double minHeight() {
-            return isManaged() ? peer.minHeight(-1) : 0;
+        @Override
+        void layout(double x, double y, double width, double height) {
+            if (needsLayout(x, y, width, height)) {
+                changed = true;
+            }
         }
+    }
+
+    private static final class Divider {
+        Splitter parent;
+
+        boolean managed;
+        double dividerWidth;
+        double position;
+        double resizeWeight = Double.NaN;
+        boolean childWeighted;
+        boolean changed;
+
+        double areaSize;
+        double minPosition;
+        double maxPosition = 1;
 
-        public void layoutInArea(double x, double y, double width, double height) {
-            if (isManaged()) {
-                peer.resizeRelocate(x, y, width, height);
+        boolean dirty = true;
+        double x;
+        double y;
+        double width;
+        double height;
+
+        double getDividerWidth() {
+            return managed ? dividerWidth : 0;
+        }
+
+        void layout(double x, double y, double width, double height) {
+            if (!dirty && x == this.x && y == this.y && width == this.width && height == this.height) {
+                return;
             }
+            dirty = false;
+            changed = true;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
         }
     }
 
-    public static final class Divider {
-        ViewPaneSkin.Divider peer;
+    private final class Splitter extends LayoutNode {
+        private final Orientation orientation;
+
+        private LayoutNode[] children = new LayoutNode[0];
+        private Divider[] dividers = new Divider[0];
+        private double[] effectivePositions = new double[0];
+        private double[] weights;
+
+        Splitter(Orientation orientation) {
+            this.orientation = orientation;
+        }
+
+        void addChild(LayoutNode child) {
+            if (children.length != dividers.length) {
+                throw new IllegalStateException("A divider must be added between two children");
+            }
+            child.parent = this;
+            setWeights(null);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+        }
+
+        void addDivider(Divider divider) {
+            if (children.length != dividers.length + 1) {
+                throw new IllegalStateException("A divider must follow a child");
+            }
+            divider.parent = this;
+            dividers = Arrays.copyOf(dividers, dividers.length + 1);
+            dividers[dividers.length - 1] = divider;
+            effectivePositions = new double[dividers.length];
+        }
 
-        private final DividerType type;
+        void setWeights(double[] weights) {
+            this.weights = weights;
+            for (Divider divider : dividers) divider.childWeighted = weights != null;
+        }
 
-        public Divider(DividerType type) {
-            this.type = type;
+        @Override
+        boolean isManaged() {
+            for (LayoutNode child : children) {
+                if (child.isManaged()) return true;
+            }
+            return false;
         }
 
-        public boolean isManaged() {
-            return peer != null && peer.isManaged();
+        @Override
+        double minWidth() {
+            return orientation == Orientation.HORIZONTAL ? minLength() : minBreadth();
         }
 
-        public DividerType getType() {
-            return type;
+        @Override
+        double minHeight() {
+            return orientation == Orientation.VERTICAL ? minLength() : minBreadth();
         }
 
-        public boolean isVertical() {
-            return type.isVertical();
+        private double minLength() {
+            double result = 0;
+            for (LayoutNode child : children) result += child.minLength(orientation);
+            for (Divider divider : dividers) result += divider.getDividerWidth();
+            return result;
         }
 
-        public double getDividerWidth() {
-            return isManaged() ? peer.getDividerWidth() : 0;
+        private double minBreadth() {
+            double result = 0;
+            Orientation breadth = orientation == Orientation.HORIZONTAL ? Orientation.VERTICAL : Orientation.HORIZONTAL;
+            for (LayoutNode child : children) result = Math.max(result, child.minLength(breadth));
+            return result;
         }
 
-        public double getPosition() {
-            if (isManaged()) {
-                return peer.getPosition();
+        @Override
+        void layout(double x, double y, double width, double height) {
+            if (!needsLayout(x, y, width, height)) return;
+
+            boolean horizontal = orientation == Orientation.HORIZONTAL;
+            double size = horizontal ? width : height;
+
+            validDividerPositions(size);
+            updateEffectivePositions();
+
+            double start = 0;
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                double dividerWidth = divider.getDividerWidth();
+                double dividerStart = Math.max(start, snap(size * effectivePositions[i] - dividerWidth / 2));
+                if (horizontal) {
+                    children[i].layout(x + start, y, dividerStart - start, height);
+                    divider.layout(x + dividerStart, y, dividerWidth, height);
+                } else {
+                    children[i].layout(x, y + start, width, dividerStart - start);
+                    divider.layout(x, y + dividerStart, width, dividerWidth);
+                }
+                start = dividerStart + dividerWidth;
+            }
+            if (children.length != 0) {
+                double remaining = Math.max(0, size - start);
+                if (horizontal) {
+                    children[children.length - 1].layout(x + start, y, remaining, height);
+                } else {
+                    children[children.length - 1].layout(x, y + start, width, remaining);
+                }
             }
-            return type.getSide() == Side.TOP || type.getSide() == Side.LEFT ? 0 : 1;
         }
 
-        public void validDividerPosition(double size, double min, double max) {
-            if (isManaged()) {
-                peer.validDividerPosition(size, min, max);
+        private void validDividerPositions(double size) {
+            double totalWeight = 0;
+            if (weights != null) {
+                for (int i = 0; i < children.length; i++) {
+                    if (children[i].isManaged()) totalWeight += weights[i];
+                }
+            }
+            double leadingWeight = 0;
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                double oldSize = divider.areaSize;
+                divider.areaSize = size;
+                if (weights != null && children[i].isManaged()) leadingWeight += weights[i];
+                if (!divider.managed || size <= 0) continue;
+
+                // Child weights give a divider the share of the change of all the children before it.
+                double resizeWeight = weights == null ? divider.resizeWeight :
+                        totalWeight > 0 ? leadingWeight / totalWeight : Double.NaN;
+                if (!Double.isNaN(resizeWeight) && oldSize > 0 && oldSize != size) {
+                    divider.position = (divider.position * oldSize + resizeWeight * (size - oldSize)) / size;
+                }
+
+                double halfWidth = divider.dividerWidth / 2;
+
+                double prevPosition = 0;
+                double prevDelta = halfWidth + children[i].minLength(orientation);
+                for (int j = i - 1; j >= 0; j--) {
+                    Divider prev = dividers[j];
+                    if (prev.managed) {
+                        prevPosition = prev.position;
+                        prevDelta += prev.dividerWidth / 2;
+                        break;
+                    }
+                    prevDelta += children[j].minLength(orientation);
+                }
+
+                double nextPosition = 1;
+                double nextDelta = halfWidth + children[i + 1].minLength(orientation);
+                for (int j = i + 1; j < dividers.length; j++) {
+                    Divider next = dividers[j];
+                    if (next.managed) {
+                        nextPosition = next.position;
+                        nextDelta += next.dividerWidth / 2;
+                        break;
+                    }
+                    nextDelta += children[j + 1].minLength(orientation);
+                }
+
+                // The next divider is not clamped yet and may sit too close, then this one keeps its minimum
+                // and pushes the next one. The trailing edge always wins, as the children after this divider
+                // must fit in whatever is left.
+                double minPosition = prevPosition + prevDelta / size;
+                double maxPosition = Math.min(Math.max(nextPosition - nextDelta / size, minPosition),
+                        1 - trailingLength(i, halfWidth) / size);
+                divider.minPosition = minPosition;
+                divider.maxPosition = maxPosition;
+                divider.position = Math.min(Math.max(divider.position, minPosition), maxPosition);
             }
         }
 
-        public void layoutInArea(double x, double y, double width, double height) {
-            if (isManaged()) {
-                peer.resizeRelocate(x, y, width, height);
+        private double trailingLength(int divider, double halfWidth) {
+            double result = halfWidth;
+            for (int j = divider + 1; j < children.length; j++) result += children[j].minLength(orientation);
+            for (int j = divider + 1; j < dividers.length; j++) result += dividers[j].getDividerWidth();
+            return result;
+        }
+
+        private void updateEffectivePositions() {
+            // An unmanaged divider collapses onto its neighbour: onto the trailing edge when nothing after
+            // it is managed, otherwise onto the previous boundary.
+            boolean trailingManaged = false;
+            for (int i = dividers.length - 1; i >= 0; i--) {
+                trailingManaged |= children[i + 1].isManaged();
+                effectivePositions[i] = trailingManaged ? Double.NaN : 1;
+            }
+            double prevPosition = 0;
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                if (divider.managed) {
+                    prevPosition = effectivePositions[i] = divider.position;
+                } else if (Double.isNaN(effectivePositions[i])) {
+                    effectivePositions[i] = prevPosition;
+                }
             }
         }
     }
 
-    private static final class VerticalSplitter {
-        private final Splitter top;
-        private final Divider topDivider;
-        private final HorizontalSplitter center;
-        private final Divider bottomDivider;
-        private final Splitter bottom;
+    private final class CacheEntry {
+        boolean valid;
+
+        double width;
+        double height;
+        boolean snapToPixel;
+        final boolean[] containerManaged = new boolean[containers.length];
+        final double[] containerMinSizes = new double[containers.length * 2];
+        final boolean[] dividerManaged = new boolean[dividers.length];
+        final double[] dividerInputs = new double[dividers.length * 4];
+
+        final double[] containerBounds = new double[containers.length * 4];
+        final double[] dividerBounds = new double[dividers.length * 4];
+        final double[] dividerStates = new double[dividers.length * 4];
+        final double[] splitterBounds = new double[splitters.length * 4];
+
+        boolean matches(double width, double height) {
+            if (!valid || this.width != width || this.height != height || snapToPixel != DivisionHelper.this.snapToPixel) {
+                return false;
+            }
+            for (int i = 0; i < containers.length; i++) {
+                Container container = containers[i];
+                if (containerManaged[i] != container.managed) return false;
+                if (container.managed && (containerMinSizes[i * 2] != container.minWidth ||
+                        containerMinSizes[i * 2 + 1] != container.minHeight)) return false;
+            }
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                if (dividerManaged[i] != divider.managed) return false;
+                if (divider.managed && (dividerInputs[i * 4] != divider.dividerWidth ||
+                        dividerInputs[i * 4 + 1] != divider.position ||
+                        !sameWeight(dividerInputs[i * 4 + 2], divider.resizeWeight) ||
+                        (divider.childWeighted || !Double.isNaN(divider.resizeWeight)) &&
+                                dividerInputs[i * 4 + 3] != divider.areaSize)) return false;
+            }
+            return true;
+        }
 
-        public VerticalSplitter(Splitter top, Divider topDivider, HorizontalSplitter center, Divider bottomDivider, Splitter bottom) {
-            this.top = top;
-            this.topDivider = topDivider;
-            this.center = center;
-            this.bottomDivider = bottomDivider;
-            this.bottom = bottom;
+        void storeInput(double width, double height) {
+            this.width = width;
+            this.height = height;
+            this.snapToPixel = DivisionHelper.this.snapToPixel;
+            for (int i = 0; i < containers.length; i++) {
+                Container container = containers[i];
+                containerManaged[i] = container.managed;
+                containerMinSizes[i * 2] = container.minWidth;
+                containerMinSizes[i * 2 + 1] = container.minHeight;
+            }
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                dividerManaged[i] = divider.managed;
+                // A weighted position depends on the size it was computed for last time.
+                storeBounds(dividerInputs, i, divider.dividerWidth, divider.position, divider.resizeWeight, divider.areaSize);
+            }
         }
 
-        public void layoutChildren(double x, double y, double width, double height, boolean snapToPixel) {
-            double topDividerWidth = topDivider.getDividerWidth();
-            double bottomDividerWidth = bottomDivider.getDividerWidth();
+        void storeResult(double x, double y) {
+            for (int i = 0; i < containers.length; i++) {
+                Container container = containers[i];
+                storeBounds(containerBounds, i, container.x - x, container.y - y, container.width, container.height);
+            }
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                storeBounds(dividerBounds, i, divider.x - x, divider.y - y, divider.width, divider.height);
+                storeBounds(dividerStates, i, divider.position, divider.minPosition, divider.maxPosition, divider.areaSize);
+            }
+            for (int i = 0; i < splitters.length; i++) {
+                Splitter splitter = splitters[i];
+                storeBounds(splitterBounds, i, splitter.x - x, splitter.y - y, splitter.width, splitter.height);
+            }
+            valid = true;
+        }
 
-            double halfTopDividerWidth = topDividerWidth / 2;
-            double halfBottomDividerWidth = bottomDividerWidth / 2;
+        void restoreResult(double x, double y) {
+            for (int i = 0; i < containers.length; i++) {
+                Container container = containers[i];
+                int j = i * 4;
+                if (container.needsLayout(x + containerBounds[j], y + containerBounds[j + 1],
+                        containerBounds[j + 2], containerBounds[j + 3])) {
+                    container.changed = true;
+                }
+            }
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                int j = i * 4;
+                divider.layout(x + dividerBounds[j], y + dividerBounds[j + 1], dividerBounds[j + 2], dividerBounds[j + 3]);
+                divider.position = dividerStates[j];
+                divider.minPosition = dividerStates[j + 1];
+                divider.maxPosition = dividerStates[j + 2];
+                divider.areaSize = dividerStates[j + 3];
+            }
+            for (int i = 0; i < splitters.length; i++) {
+                int j = i * 4;
+                splitters[i].needsLayout(x + splitterBounds[j], y + splitterBounds[j + 1],
+                        splitterBounds[j + 2], splitterBounds[j + 3]);
+            }
+        }
+    }
 
-            double centerDelta = (halfTopDividerWidth + center.minHeight() + halfBottomDividerWidth) / width;
-            topDivider.validDividerPosition(height,
-                    (top.minHeight() + halfTopDividerWidth) / height,
-                    bottomDivider.getPosition() - centerDelta);
-            bottomDivider.validDividerPosition(height,
-                    topDivider.getPosition() + centerDelta,
-                    1 - (bottom.minHeight() + halfBottomDividerWidth) / height);
+    public static final int DEFAULT_CACHE_SIZE = 4;
+
+    private Container[] containers = new Container[0];
+    private Divider[] dividers = new Divider[0];
+    private Splitter[] splitters = new Splitter[0];
+    private Splitter root;
+
+    private boolean snapToPixel = true;
+
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    // Most recently used first.
+    private CacheEntry[] cache;
+
+    public static DivisionHelper createEightPosLayout() {
+        DivisionHelper helper = new DivisionHelper();
+        for (int i = 0; i <= CENTER; i++) helper.createContainer();
+        for (int i = 0; i < DividerType.values().length; i++) helper.createDivider();
+
+        int top = helper.createSplit(Orientation.HORIZONTAL);
+        helper.addContainer(top, EightPos.TOP_LEFT.ordinal());
+        helper.addDivider(top, DividerType.TOP_SECONDARY.ordinal());
+        helper.addContainer(top, EightPos.TOP_RIGHT.ordinal());
+
+        int left = helper.createSplit(Orientation.VERTICAL);
+        helper.addContainer(left, EightPos.LEFT_TOP.ordinal());
+        helper.addDivider(left, DividerType.LEFT_SECONDARY.ordinal());
+        helper.addContainer(left, EightPos.LEFT_BOTTOM.ordinal());
+
+        int bottom = helper.createSplit(Orientation.HORIZONTAL);
+        helper.addContainer(bottom, EightPos.BOTTOM_LEFT.ordinal());
+        helper.addDivider(bottom, DividerType.BOTTOM_SECONDARY.ordinal());
+        helper.addContainer(bottom, EightPos.BOTTOM_RIGHT.ordinal());
+
+        int right = helper.createSplit(Orientation.VERTICAL);
+        helper.addContainer(right, EightPos.RIGHT_TOP.ordinal());
+        helper.addDivider(right, DividerType.RIGHT_SECONDARY.ordinal());
+        helper.addContainer(right, EightPos.RIGHT_BOTTOM.ordinal());
+
+        int horizontal = helper.createSplit(Orientation.HORIZONTAL);
+        helper.addSplit(horizontal, left);
+        helper.addDivider(horizontal, DividerType.LEFT_PRIMARY.ordinal());
+        helper.addContainer(horizontal, CENTER);
+        helper.addDivider(horizontal, DividerType.RIGHT_PRIMARY.ordinal());
+        helper.addSplit(horizontal, right);
+
+        int vertical = helper.createSplit(Orientation.VERTICAL);
+        helper.addSplit(vertical, top);
+        helper.addDivider(vertical, DividerType.TOP_PRIMARY.ordinal());
+        helper.addSplit(vertical, horizontal);
+        helper.addDivider(vertical, DividerType.BOTTOM_PRIMARY.ordinal());
+        helper.addSplit(vertical, bottom);
+
+        helper.setRoot(vertical);
+        return helper;
+    }
 
-            double topDividerY = height * topDivider.getPosition();
-            double topHeight = snapToPixel(topDividerY - halfTopDividerWidth, true);
+    public int createContainer() {
+        cache = null;
+        containers = Arrays.copyOf(containers, containers.length + 1);
+        containers[containers.length - 1] = new Container();
+        return containers.length - 1;
+    }
 
-            double bottomDividerY = height * bottomDivider.getPosition();
-            double bottomHeight = snapToPixel(height - bottomDividerY - halfBottomDividerWidth, true);
+    public int createDivider() {
+        cache = null;
+        dividers = Arrays.copyOf(dividers, dividers.length + 1);
+        dividers[dividers.length - 1] = new Divider();
+        return dividers.length - 1;
+    }
 
-            double centerHeight = height - topHeight - topDividerWidth - bottomHeight - bottomDividerWidth;
+    public int createSplit(Orientation orientation) {
+        cache = null;
+        splitters = Arrays.copyOf(splitters, splitters.length + 1);
+        splitters[splitters.length - 1] = new Splitter(orientation);
+        return splitters.length - 1;
+    }
 
-            top.layoutChildren(x, y, width, topHeight, snapToPixel);
-            y += topHeight;
-            topDivider.layoutInArea(x, y, width, topDividerWidth);
-            y += topDividerWidth;
-            center.layoutChildren(x, y, width, centerHeight, snapToPixel);
-            y += centerHeight;
-            bottomDivider.layoutInArea(x, y, width, bottomDividerWidth);
-            y += bottomDividerWidth;
-            bottom.layoutChildren(x, y, width, bottomHeight, snapToPixel);
-        }
+    public void addContainer(int split, int container) {
+        addChild(split, containers[container]);
     }
 
-    private static final class HorizontalSplitter {
-        private final Splitter left;
-        private final Divider leftDivider;
-        private final Container center;
-        private final Divider rightDivider;
-        private final Splitter right;
+    public void addSplit(int split, int child) {
+        addChild(split, splitters[child]);
+    }
 
-        public HorizontalSplitter(Splitter left, Divider leftDivider, Container center, Divider rightDivider, Splitter right) {
-            this.left = left;
-            this.leftDivider = leftDivider;
-            this.center = center;
-            this.rightDivider = rightDivider;
-            this.right = right;
+    private void addChild(int split, LayoutNode child) {
+        cache = null;
+        if (child.parent != null || child == root) {
+            throw new IllegalStateException("The node has been added to the tree");
         }
+        splitters[split].addChild(child);
+        child.markParentDirty();
+    }
 
-        public double minHeight() {
-            return max(left.minHeight(), center.minHeight(), right.minHeight());
+    public void addDivider(int split, int divider) {
+        Divider node = dividers[divider];
+        if (node.parent != null) {
+            throw new IllegalStateException("The divider has been added to the tree");
         }
+        cache = null;
+        splitters[split].addDivider(node);
+        splitters[split].markDirty();
+    }
 
-        public void layoutChildren(double x, double y, double width, double height, boolean snapToPixel) {
-            double leftDividerWidth = leftDivider.getDividerWidth();
-            double rightDividerWidth = rightDivider.getDividerWidth();
+    public void setRoot(int split) {
+        Splitter splitter = splitters[split];
+        if (splitter.parent != null) {
+            throw new IllegalStateException("The split has been added to the tree");
+        }
+        cache = null;
+        root = splitter;
+        root.markDirty();
+    }
 
-            double halfLeftDividerWidth = leftDividerWidth / 2;
-            double halfRightDividerWidth = rightDividerWidth / 2;
+    public int getContainerCount() {
+        return containers.length;
+    }
 
-            double centerDelta = (halfLeftDividerWidth + center.minWidth() + halfRightDividerWidth) / width;
-            leftDivider.validDividerPosition(width,
-                    (left.minWidth() + halfLeftDividerWidth) / width,
-                    rightDivider.getPosition() - centerDelta);
-            rightDivider.validDividerPosition(width,
-                    leftDivider.getPosition() + centerDelta,
-                    1 - (right.minWidth() + halfRightDividerWidth) / width);
+    public int getDividerCount() {
+        return dividers.length;
+    }
 
-            double leftDividerX = width * leftDivider.getPosition();
-            double leftWidth = snapToPixel(leftDividerX - halfLeftDividerWidth, true);
+    public void setContainer(int index, boolean managed, double minWidth, double minHeight) {
+        Container container = containers[index];
+        if (container.managed != managed) {
+            container.managed = managed;
+            container.markDirty();
+        }
+        if (container.minWidth != minWidth || container.minHeight != minHeight) {
+            container.minWidth = minWidth;
+            container.minHeight = minHeight;
+            container.markParentDirty();
+        }
+    }
 
-            double rightDividerX = width * rightDivider.getPosition();
-            double rightWidth = snapToPixel(width - rightDividerX - halfRightDividerWidth, true);
+    public void setDivider(int index, boolean managed, double dividerWidth, double position) {
+        Divider divider = dividers[index];
+        if (divider.managed != managed) {
+            divider.managed = managed;
+            divider.dirty = true;
+            markDirty(divider);
+        }
+        if (divider.dividerWidth != dividerWidth || divider.position != position) {
+            divider.dividerWidth = dividerWidth;
+            divider.position = position;
+            markDirty(divider);
+        }
+    }
 
-            double centerWidth = width - leftWidth - leftDividerWidth - rightWidth - rightDividerWidth;
+    /**
+     * Sets how a divider follows a change of the size of its split. {@code NaN} keeps the position as a
+     * fraction, otherwise the given fraction of the change goes to the children before the divider.
+     */
+    public void setResizeWeight(int index, double resizeWeight) {
+        Divider divider = dividers[index];
+        if (!sameWeight(divider.resizeWeight, resizeWeight)) {
+            divider.resizeWeight = resizeWeight;
+            markDirty(divider);
+        }
+    }
 
-            left.layoutChildren(x, y, leftWidth, height, snapToPixel);
-            x += leftWidth;
-            leftDivider.layoutInArea(x, y, leftDividerWidth, height);
-            x += leftDividerWidth;
-            center.layoutInArea(x, y, centerWidth, height);
-            x += centerWidth;
-            rightDivider.layoutInArea(x, y, rightDividerWidth, height);
-            x += rightDividerWidth;
-            right.layoutChildren(x, y, rightWidth, height, snapToPixel);
+    /**
+     * Sets how a split distributes a change of its size over its children, one non-negative weight per child in
+     * the order they were added. A child gets the share of its weight among the managed children. The weights
+     * take precedence over the resize weights of the dividers of the split, {@code null} removes them. Adding a
+     * child to the split removes them as well.
+     */
+    public void setWeights(int split, double... weights) {
+        Splitter splitter = splitters[split];
+        if (weights != null) {
+            if (weights.length != splitter.children.length) {
+                throw new IllegalArgumentException("Expected " + splitter.children.length + " weights");
+            }
+            for (double weight : weights) {
+                if (!(weight >= 0) || Double.isInfinite(weight)) {
+                    throw new IllegalArgumentException("Weights must be finite and non-negative");
+                }
+            }
+            weights = weights.clone();
         }
+        cache = null;
+        splitter.setWeights(weights);
+        splitter.markDirty();
     }
 
-    private static final class Splitter {
-        private final Container leftTop;
-        private final Divider divider;
-        private final Container rightBottom;
-        private final Orientation orientation;
+    private static void markDirty(Divider divider) {
+        if (divider.parent != null) divider.parent.markDirty();
+    }
 
-        public Splitter(Container leftTop, Divider divider, Container rightBottom, Orientation orientation) {
-            this.leftTop = leftTop;
-            this.divider = divider;
-            this.rightBottom = rightBottom;
-            this.orientation = orientation;
+    public void layout(double x, double y, double width, double height, boolean snapToPixel) {
+        for (Container container : containers) container.changed = false;
+        for (Divider divider : dividers) divider.changed = false;
+
+        if (root == null) return;
+
+        if (this.snapToPixel != snapToPixel) {
+            this.snapToPixel = snapToPixel;
+            // Every split snaps its own dividers, so none of the cached geometry is valid anymore.
+            markAllDirty();
         }
+        if (!root.dirty && root.x == x && root.y == y && root.width == width && root.height == height) return;
 
-        public double minWidth() {
-            return leftTop.minWidth() + divider.getDividerWidth() + rightBottom.minWidth();
+        if (cacheSize == 0) {
+            root.layout(x, y, width, height);
+            return;
         }
 
-        public double minHeight() {
-            return leftTop.minWidth() + divider.getDividerWidth() + rightBottom.minWidth();
+        if (cache == null) {
+            cache = new CacheEntry[cacheSize];
+            for (int i = 0; i < cacheSize; i++) cache[i] = new CacheEntry();
         }
 
-        public void layoutChildren(double x, double y, double width, double height, boolean snapToPixel) {
-            if (leftTop.isManaged() && rightBottom.isManaged()) {
-                double dividerWidth = divider.getDividerWidth();
-                double halfDividerWidth = dividerWidth / 2;
-                if (orientation == Orientation.HORIZONTAL) {
-                    divider.validDividerPosition(width,
-                            (leftTop.minWidth() + halfDividerWidth) / width,
-                            1 - (rightBottom.minWidth() + halfDividerWidth) / width);
-
-                    double dividerX = width * divider.getPosition();
-                    double leftWidth = snapToPixel(dividerX - halfDividerWidth, snapToPixel);
-                    leftTop.layoutInArea(x, y, leftWidth, height);
-                    divider.layoutInArea(x + leftWidth, y, dividerWidth, height);
-                    rightBottom.layoutInArea(x + leftWidth + dividerWidth, y, width - leftWidth - dividerWidth, height);
-                } else {
-                    divider.validDividerPosition(height,
-                            (leftTop.minWidth() + halfDividerWidth) / height,
-                            1 - (rightBottom.minWidth() + halfDividerWidth) / height);
-
-                    double dividerY = height * divider.getPosition();
-                    double topHeight = snapToPixel(dividerY - halfDividerWidth, snapToPixel);
-                    leftTop.layoutInArea(x, y, width, topHeight);
-                    divider.layoutInArea(x, y + topHeight, width, dividerWidth);
-                    rightBottom.layoutInArea(x, y + topHeight + dividerWidth, width, height - topHeight - dividerWidth);
-                }
-            } else {
-                leftTop.layoutInArea(x, y, width, height);
-                rightBottom.layoutInArea(x, y, width, height);
+        for (int i = 0; i < cache.length; i++) {
+            CacheEntry entry = cache[i];
+            if (entry.matches(width, height)) {
+                moveToFront(i);
+                entry.restoreResult(x, y);
+                return;
             }
         }
+
+        // Reuse the least recently used entry. The input has to be captured before the solver clamps the positions.
+        moveToFront(cache.length - 1);
+        CacheEntry entry = cache[0];
+        entry.valid = false;
+        entry.storeInput(width, height);
+        root.layout(x, y, width, height);
+        entry.storeResult(x, y);
     }
 
-    private final VerticalSplitter root;
+    private void markAllDirty() {
+        for (Container container : containers) container.dirty = true;
+        for (Divider divider : dividers) divider.dirty = true;
+        for (Splitter splitter : splitters) splitter.dirty = true;
+    }
 
-    final Container[] containers = new Container[8];
-    final Container center = new Container();
-    final Divider[] dividers = new Divider[8];
+    private static boolean sameWeight(double a, double b) {
+        return a == b || Double.isNaN(a) && Double.isNaN(b);
+    }
 
-    public DivisionHelper() {
-        Splitter top = new Splitter(
-                createNode(EightPos.TOP_LEFT),
-                createDivider(DividerType.TOP_SECONDARY),
-                createNode(EightPos.TOP_RIGHT),
-                Orientation.HORIZONTAL);
+    private void moveToFront(int index) {
+        CacheEntry entry = cache[index];
+        System.arraycopy(cache, 0, cache, 1, index);
+        cache[0] = entry;
+    }
 
-        Splitter left = new Splitter(
-                createNode(EightPos.LEFT_TOP),
-                createDivider(DividerType.LEFT_SECONDARY),
-                createNode(EightPos.LEFT_BOTTOM),
-                Orientation.VERTICAL);
+    public int getCacheSize() {
+        return cacheSize;
+    }
 
-        Splitter bottom = new Splitter(
-                createNode(EightPos.BOTTOM_LEFT),
-                createDivider(DividerType.BOTTOM_SECONDARY),
-                createNode(EightPos.BOTTOM_RIGHT),
-                Orientation.HORIZONTAL);
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must be non-negative");
+        }
+        this.cacheSize = cacheSize;
+        this.cache = null;
+    }
 
-        Splitter right = new Splitter(
-                createNode(EightPos.RIGHT_TOP),
-                createDivider(DividerType.RIGHT_SECONDARY),
-                createNode(EightPos.RIGHT_BOTTOM),
-                Orientation.VERTICAL);
+    public void clearCache() {
+        if (cache == null) return;
+        for (CacheEntry entry : cache) entry.valid = false;
+    }
 
-        HorizontalSplitter horizontal = new HorizontalSplitter(
-                left,
-                createDivider(DividerType.LEFT_PRIMARY),
-                center,
-                createDivider(DividerType.RIGHT_PRIMARY),
-                right);
+    public boolean isContainerChanged(int index) {
+        return containers[index].changed;
+    }
 
-        VerticalSplitter vertical = new VerticalSplitter(
-                top,
-                createDivider(DividerType.TOP_PRIMARY),
-                horizontal,
-                createDivider(DividerType.BOTTOM_PRIMARY),
-                bottom);
+    public double getContainerX(int index) {
+        return containers[index].x;
+    }
 
-        root = vertical;
+    public double getContainerY(int index) {
+        return containers[index].y;
     }
 
-    private Container createNode(EightPos pos) {
-        return containers[pos.ordinal()] = new Container();
+    public double getContainerWidth(int index) {
+        return containers[index].width;
     }
 
-    private Divider createDivider(DividerType type) {
-        return dividers[type.ordinal()] = new Divider(type);
+    public double getContainerHeight(int index) {
+        return containers[index].height;
     }
 
-    public void layout(double x, double y, double width, double height, boolean snapToPixel) {
-        root.layoutChildren(x, y, width, height, snapToPixel);
+    public boolean isDividerChanged(int index) {
+        return dividers[index].changed;
     }
 
-    private static double snapToPixel(double value, boolean snapToPixel) {
-        return snapToPixel ? Math.ceil(value) : value;
+    public double getDividerX(int index) {
+        return dividers[index].x;
     }
 
-    private static double max(double a, double b, double c) {
-        return Math.max(Math.max(a, b), c);
+    public double getDividerY(int index) {
+        return dividers[index].y;
+    }
+
+    public double getDividerWidth(int index) {
+        return dividers[index].width;
+    }
+
+    public double getDividerHeight(int index) {
+        return dividers[index].height;
+    }
+
+    public double getPosition(int index) {
+        return dividers[index].position;
+    }
+
+    public double getMinPosition(int index) {
+        return dividers[index].minPosition;
+    }
+
+    public double getMaxPosition(int index) {
+        return dividers[index].maxPosition;
+    }
+
+    public double getAreaSize(int index) {
+        return dividers[index].areaSize;
+    }
+
+    private static void storeBounds(double[] array, int index, double a, double b, double c, double d) {
+        int i = index * 4;
+        array[i] = a;
+        array[i + 1] = b;
+        array[i + 2] = c;
+        array[i + 3] = d;
+    }
+
+    private double snap(double value) {
+        return snapToPixel ? Math.ceil(value) : value;
     }
 }
@@ -1,5 +1,6 @@
 package com.github.mouse0w0.viewpane.skin;
 
+import com.github.mouse0w0.viewpane.ContentRetentionPolicy;
 import com.github.mouse0w0.viewpane.DividerType;
 import com.github.mouse0w0.viewpane.ViewGroup;
 import com.github.mouse0w0.viewpane.ViewPane;
@@ -7,32 +8,71 @@ import com.github.mouse0w0.viewpane.ViewTab;
 import com.github.mouse0w0.viewpane.geometry.EightPos;
 import com.sun.javafx.scene.control.behavior.ButtonBehavior;
 import com.sun.javafx.scene.control.skin.LabeledSkinBase;
+import javafx.animation.AnimationTimer;
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.ListChangeListener;
+import javafx.collections.transformation.FilteredList;
 import javafx.collections.ObservableList;
 import javafx.css.PseudoClass;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
+import javafx.geometry.Bounds;
 import javafx.geometry.HPos;
 import javafx.geometry.Side;
 import javafx.geometry.VPos;
 import javafx.scene.Cursor;
+import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.control.Button;
 import javafx.scene.control.ButtonBase;
 import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.Skin;
 import javafx.scene.control.SkinBase;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.Region;
-
-import java.util.Iterator;
+import javafx.scene.layout.VBox;
+import javafx.stage.Popup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 public class ViewPaneSkin extends SkinBase<ViewPane> {
     private final SideBarArea sideBarArea;
-    private final DivisionArea divisionArea;
+    final DivisionArea divisionArea;
+    private final ContentPrewarmer contentPrewarmer;
+
+    private static final int TAB_BUTTON_POOL_SIZE = 16;
+    private final ArrayDeque<TabButton> tabButtonPool = new ArrayDeque<>();
+
+    private boolean viewGroupsChanged;
+
+    // The tabs removed while the view pane is updating, their content is recycled unless they are added back.
+    private final Set<ViewTab> removedTabs = new HashSet<>();
+
+    // The buttons of tabs removed while the view pane is updating, claimed by the bar the tab moves to.
+    private final Map<ViewTab, TabButton> movingTabButtons = new IdentityHashMap<>();
+
+    // The hidden tabs which can rebuild their content, the most recently hidden first.
+    private final List<ViewTab> hiddenTabs = new ArrayList<>();
 
     public ViewPaneSkin(ViewPane control) {
         super(control);
@@ -43,28 +83,152 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         divisionArea = new DivisionArea(this);
         sideBarArea.setCenter(divisionArea);
 
+        contentPrewarmer = new ContentPrewarmer(this);
+
         getViewGroups().forEach(this::createTabButtonBar);
         getViewGroups().addListener(new ListChangeListener<ViewGroup>() {
             @Override
             public void onChanged(Change<? extends ViewGroup> c) {
+                if (getSkinnable().isUpdating()) {
+                    viewGroupsChanged = true;
+                    return;
+                }
                 while (c.next()) {
                     if (c.wasRemoved()) {
                         for (ViewGroup viewGroup : c.getRemoved()) {
-                            createTabButtonBar(viewGroup);
+                            removeTabButtonBar(viewGroup);
                         }
                     }
                     if (c.wasAdded()) {
                         for (ViewGroup viewGroup : c.getAddedSubList()) {
-                            removeTabButtonBar(viewGroup);
+                            createTabButtonBar(viewGroup);
                         }
                     }
                 }
             }
         });
+        control.updatingProperty().addListener(observable -> {
+            if (!getSkinnable().isUpdating()) reconcile();
+        });
 
         Node center = getSkinnable().getCenter();
         if (center != null) divisionArea.setCenter(center);
         control.centerProperty().addListener(observable -> divisionArea.setCenter(getSkinnable().getCenter()));
+        control.contentRetentionPolicyProperty().addListener(observable -> applyContentRetentionPolicy());
+    }
+
+    /**
+     * Applies the changes made to the model during an update of the view pane in one pass.
+     */
+    private void reconcile() {
+        if (viewGroupsChanged) {
+            viewGroupsChanged = false;
+            for (Side side : Side.values()) {
+                SideBar sideBar = sideBarArea.getSideBar(side);
+                if (sideBar == null) continue;
+                removeStaleTabButtonBar(sideBar.getTopLeftBar());
+                removeStaleTabButtonBar(sideBar.getBottomRightBar());
+            }
+            getViewGroups().forEach(this::createTabButtonBar);
+        }
+        for (Side side : Side.values()) {
+            SideBar sideBar = sideBarArea.getSideBar(side);
+            if (sideBar == null) continue;
+            if (sideBar.getTopLeftBar() != null) sideBar.getTopLeftBar().updateSelectedTab();
+            if (sideBar.getBottomRightBar() != null) sideBar.getBottomRightBar().updateSelectedTab();
+        }
+        if (!removedTabs.isEmpty()) {
+            removedTabs.forEach(ViewPaneSkin::recycleRemovedTab);
+            removedTabs.clear();
+        }
+        if (!movingTabButtons.isEmpty()) {
+            movingTabButtons.values().forEach(this::recycleTabButton);
+            movingTabButtons.clear();
+        }
+    }
+
+    private void removeStaleTabButtonBar(TabButtonBar tabButtonBar) {
+        if (tabButtonBar != null && !getViewGroups().contains(tabButtonBar.getViewGroup())) {
+            removeTabButtonBar(tabButtonBar.getViewGroup());
+        }
+    }
+
+    TabButton obtainTabButton(ViewTab tab) {
+        TabButton tabButton = tabButtonPool.poll();
+        if (tabButton == null) return new TabButton(contentPrewarmer, tab);
+        tabButton.setTab(tab);
+        return tabButton;
+    }
+
+    void recycleTabButton(TabButton tabButton) {
+        tabButton.setTab(null);
+        if (tabButtonPool.size() < TAB_BUTTON_POOL_SIZE) {
+            tabButtonPool.push(tabButton);
+        } else if (tabButton.getSkin() != null) {
+            tabButton.getSkin().dispose();
+        }
+    }
+
+    /**
+     * Recycles the button of a removed tab. While the view pane is updating the button is kept for the tab,
+     * so that moving a tab to another group keeps its button and skin.
+     */
+    void releaseTabButton(ViewTab tab, TabButton tabButton) {
+        if (getSkinnable().isUpdating()) {
+            movingTabButtons.put(tab, tabButton);
+        } else {
+            recycleTabButton(tabButton);
+        }
+    }
+
+    TabButton claimTabButton(ViewTab tab) {
+        return movingTabButtons.remove(tab);
+    }
+
+    void tabShown(ViewTab tab) {
+        hiddenTabs.remove(tab);
+    }
+
+    void tabHidden(ViewTab tab) {
+        // A tab moved to another group within an update may already be shown by the bar of that group.
+        if (tab.getViewGroup() != null && !tab.isSelected() && tab.isContentLoaded() && tab.isContentRebuildable()) {
+            hiddenTabs.remove(tab);
+            hiddenTabs.add(0, tab);
+            applyContentRetentionPolicy();
+        }
+    }
+
+    void tabsRemoved(List<? extends ViewTab> tabs) {
+        if (tabs.isEmpty()) return;
+        if (!hiddenTabs.isEmpty()) {
+            if (tabs.size() == 1) {
+                hiddenTabs.remove(tabs.get(0));
+            } else {
+                Set<ViewTab> removed = Collections.newSetFromMap(new IdentityHashMap<>(tabs.size()));
+                removed.addAll(tabs);
+                hiddenTabs.removeAll(removed);
+            }
+        }
+        if (getSkinnable().isUpdating()) {
+            removedTabs.addAll(tabs);
+        } else {
+            tabs.forEach(ViewPaneSkin::recycleRemovedTab);
+        }
+    }
+
+    private static void recycleRemovedTab(ViewTab tab) {
+        // A tab which is still in a group has been moved and keeps its content.
+        if (tab.getViewGroup() == null) tab.recycleContent();
+    }
+
+    private void applyContentRetentionPolicy() {
+        ContentRetentionPolicy policy = getSkinnable().getContentRetentionPolicy();
+        if (policy == null || hiddenTabs.isEmpty()) return;
+
+        int retained = Math.max(0, policy.computeRetainedCount(Collections.unmodifiableList(hiddenTabs)));
+        for (int i = hiddenTabs.size() - 1; i >= retained; i--) {
+            hiddenTabs.remove(i).unloadContent();
+        }
     }
 
     public ObservableList<ViewGroup> getViewGroups() {
@@ -95,12 +259,14 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         if (secondary == Side.TOP || secondary == Side.LEFT) {
             TabButtonBar tabButtonBar = sideBar.getTopLeftBar();
             if (tabButtonBar == null || tabButtonBar.getViewGroup() != viewGroup) {
+                if (tabButtonBar != null) tabButtonBar.dispose();
                 tabButtonBar = new TabButtonBar(this, viewGroup);
                 sideBar.setTopLeftBar(tabButtonBar);
             }
         } else {
             TabButtonBar tabButtonBar = sideBar.getBottomRightBar();
             if (tabButtonBar == null || tabButtonBar.getViewGroup() != viewGroup) {
+                if (tabButtonBar != null) tabButtonBar.dispose();
                 tabButtonBar = new TabButtonBar(this, viewGroup);
                 sideBar.setBottomRightBar(tabButtonBar);
             }
@@ -114,13 +280,13 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         Side secondary = pos.getSecondary();
         if (secondary == Side.TOP || secondary == Side.LEFT) {
             TabButtonBar bar = sideBar.getTopLeftBar();
-            if (bar.getViewGroup() == viewGroup) {
+            if (bar != null && bar.getViewGroup() == viewGroup) {
                 sideBar.setTopLeftBar(null);
                 bar.dispose();
             }
         } else {
             TabButtonBar bar = sideBar.getBottomRightBar();
-            if (bar.getViewGroup() == viewGroup) {
+            if (bar != null && bar.getViewGroup() == viewGroup) {
                 sideBar.setBottomRightBar(null);
                 bar.dispose();
             }
@@ -296,14 +462,26 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
             getChildren().addListener(new InvalidationListener() {
                 @Override
                 public void invalidated(Observable observable) {
-                    if (getChildren().isEmpty()) {
-                        setManaged(false);
-                        setVisible(false);
-                    }
+                    boolean flag = !getChildren().isEmpty();
+                    setManaged(flag);
+                    setVisible(flag);
                 }
             });
 
             if (side.isVertical()) setRotate(90);
+
+            insetsProperty().addListener(observable -> invalidatePrefSize());
+        }
+
+        // Invalidated by the bars when their tabs change and recomputed in layoutChildren() when preparing the
+        // bars changed their preferred sizes.
+        private double prefWidthCache = -1;
+        private double prefHeightCache = -1;
+
+        void invalidatePrefSize() {
+            prefWidthCache = -1;
+            prefHeightCache = -1;
+            requestLayout();
         }
 
         public TabButtonBar getTopLeftBar() {
@@ -314,6 +492,7 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
             if (this.topLeftBar != null) getChildren().remove(this.topLeftBar);
             this.topLeftBar = topLeftBar;
             if (topLeftBar != null) getChildren().add(topLeftBar);
+            invalidatePrefSize();
         }
 
         public TabButtonBar getBottomRightBar() {
@@ -324,29 +503,36 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
             if (this.bottomRightBar != null) getChildren().remove(this.bottomRightBar);
             this.bottomRightBar = bottomRightBar;
             if (bottomRightBar != null) getChildren().add(bottomRightBar);
+            invalidatePrefSize();
         }
 
         @Override
         protected double computePrefWidth(double height) {
-            double width = 0;
-            for (Node child : getChildren()) {
-                if (child.isManaged()) {
-                    width += snapSize(child.prefWidth(-1));
+            if (prefWidthCache < 0) {
+                double width = 0;
+                for (Node child : getChildren()) {
+                    if (child.isManaged()) {
+                        width += snapSize(child.prefWidth(-1));
+                    }
                 }
+                prefWidthCache = snappedLeftInset() + width + snappedRightInset();
             }
-            return snappedLeftInset() + width + snappedRightInset();
+            return prefWidthCache;
         }
 
         @Override
         protected double computePrefHeight(double width) {
-            double height = 0;
-            for (Node child : getChildren()) {
-                if (child.isManaged()) {
-                    double childHeight = snapSize(child.prefHeight(-1));
-                    if (childHeight > height) height = childHeight;
+            if (prefHeightCache < 0) {
+                double height = 0;
+                for (Node child : getChildren()) {
+                    if (child.isManaged()) {
+                        double childHeight = snapSize(child.prefHeight(-1));
+                        if (childHeight > height) height = childHeight;
+                    }
                 }
+                prefHeightCache = snappedTopInset() + height + snappedBottomInset();
             }
-            return snappedTopInset() + height + snappedBottomInset();
+            return prefHeightCache;
         }
 
         @Override
@@ -360,52 +546,105 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
             double contentWidth = width - left - right;
             double contentHeight = height - top - bottom;
 
-            if (topLeftBar != null && topLeftBar.isManaged()) {
-                layoutInArea(topLeftBar, left, top, contentWidth, contentHeight, 0, HPos.LEFT, VPos.CENTER);
-                double childWidth = snapSize(topLeftBar.prefWidth(-1));
-                left += childWidth;
-                contentWidth -= childWidth;
+            boolean hasTopLeft = topLeftBar != null && topLeftBar.isManaged();
+            boolean hasBottomRight = bottomRightBar != null && bottomRightBar.isManaged();
+            double topLeftWidth = computeTopLeftWidth(hasTopLeft, hasBottomRight, contentWidth);
+            // Updating the visible tabs measures new buttons, the split is computed again if that changed the
+            // preferred widths, so that the bars are laid out once in this pass.
+            boolean changed = hasTopLeft && topLeftBar.prepareLayout(topLeftWidth);
+            changed |= hasBottomRight && bottomRightBar.prepareLayout(contentWidth - topLeftWidth);
+            if (changed) {
+                prefWidthCache = -1;
+                prefHeightCache = -1;
+                topLeftWidth = computeTopLeftWidth(hasTopLeft, hasBottomRight, contentWidth);
+                if (hasTopLeft) topLeftBar.prepareLayout(topLeftWidth);
+                if (hasBottomRight) bottomRightBar.prepareLayout(contentWidth - topLeftWidth);
+            }
+
+            if (hasTopLeft) {
+                layoutInArea(topLeftBar, left, top, topLeftWidth, contentHeight, 0, HPos.LEFT, VPos.CENTER);
+                left += topLeftWidth;
+                contentWidth -= topLeftWidth;
             }
 
-            if (bottomRightBar != null && bottomRightBar.isManaged()) {
+            if (hasBottomRight) {
                 layoutInArea(bottomRightBar, left, top, contentWidth, contentHeight, 0, HPos.RIGHT, VPos.CENTER);
             }
         }
+
+        private double computeTopLeftWidth(boolean hasTopLeft, boolean hasBottomRight, double contentWidth) {
+            double topLeftWidth = hasTopLeft ? snapSize(topLeftBar.prefWidth(-1)) : 0;
+            double bottomRightWidth = hasBottomRight ? snapSize(bottomRightBar.prefWidth(-1)) : 0;
+            if (topLeftWidth + bottomRightWidth > contentWidth) {
+                // The bars show the tabs which fit in their share of the side and overflow the others.
+                topLeftWidth = snapSize(contentWidth * topLeftWidth / (topLeftWidth + bottomRightWidth));
+            }
+            return topLeftWidth;
+        }
     }
 
     static final class TabButtonBar extends Region {
         private final ViewPaneSkin viewPaneSkin;
         private final ViewGroup viewGroup;
 
+        // Only the tabs which fit on the side have a button, the others are reached through the overflow button.
+        private final Map<ViewTab, TabButton> tabButtons = new IdentityHashMap<>();
+        private final Map<ViewTab, Double> tabWidths = new IdentityHashMap<>();
+        private double tabWidthSum;
+
+        // Invalidated when the tabs or the text or graphic of a tab change, and by prepareLayout() when the visible
+        // buttons or a measured width change. Computing them never touches the children, so a query made while
+        // the side bar lays out cannot invalidate the value being computed.
+        private double prefWidthCache = -1;
+        private double prefHeightCache = -1;
+        private boolean prefSizeChanged;
+        private final InvalidationListener tabSizeListener = observable -> {
+            ViewTab tab = (ViewTab) ((ReadOnlyProperty<?>) observable).getBean();
+            setTabWidth(tab, -1);
+            invalidatePrefSize();
+        };
+
+        private int firstVisible;
+        private int visibleCount;
+        private ViewTab scrollTarget;
+
+        private boolean windowInvalid = true;
+        private double preparedWidth = -1;
+        // Reused by every window update, so that a layout pass allocates nothing.
+        private final Map<ViewTab, TabButton> unusedButtons = new IdentityHashMap<>();
+        private final List<Node> windowChildren = new ArrayList<>();
+
+        private int windowFirst;
+        private int windowCount;
+        private boolean windowOverflow;
+        private double fitWidth;
+
+        private Button overflowButton;
+        private Popup overflowPopup;
+        private TextField overflowFilter;
+        private FilteredList<ViewTab> overflowTabs;
+
         private final ListChangeListener<ViewTab> tabChangeListener = new ListChangeListener<ViewTab>() {
             @Override
             public void onChanged(Change<? extends ViewTab> c) {
                 while (c.next()) {
+                    // Permutations are applied by the next layout.
+                    if (c.wasPermutated()) continue;
                     if (c.wasRemoved()) {
-                        for (ViewTab viewTab : c.getRemoved()) {
-                            removeViewTab(viewTab);
-                        }
+                        removeViewTabs(c.getFrom(), c.getRemoved());
                     }
                     if (c.wasAdded()) {
-                        for (ViewTab viewTab : c.getAddedSubList()) {
-                            addViewTab(viewTab);
-                        }
+                        addViewTabs(c.getFrom(), c.getAddedSubList());
                     }
                 }
+                invalidatePrefSize();
+                ensureMeasured();
             }
         };
-        private final ChangeListener<ViewTab> selectedItemListener = new ChangeListener<ViewTab>() {
-            @Override
-            public void changed(ObservableValue<? extends ViewTab> observable, ViewTab oldValue, ViewTab newValue) {
-                if (oldValue != null) {
-                    setView(null);
-                    oldValue.contentProperty().removeListener(tabContentListener);
-                }
-                if (newValue != null) {
-                    setView(newValue.getContent());
-                    newValue.contentProperty().addListener(tabContentListener);
-                }
-            }
+        // The tab whose content is shown, it lags behind the selection while the view pane is updating.
+        private ViewTab shownTab;
+        private final InvalidationListener selectedItemListener = observable -> {
+            if (!isUpdating()) updateSelectedTab();
         };
         private final ChangeListener<Node> tabContentListener = new ChangeListener<Node>() {
             @Override
@@ -422,98 +661,410 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
 
             pseudoClassStateChanged(StyleHelper.getPseudoClass(viewGroup.getPos()), true);
 
-            viewGroup.getTabs().forEach(this::addViewTab);
+            addViewTabs(0, viewGroup.getTabs());
             viewGroup.getTabs().addListener(tabChangeListener);
+            insetsProperty().addListener(observable -> invalidatePrefSize());
+            addEventHandler(ScrollEvent.SCROLL, event -> {
+                double delta = event.getDeltaY() != 0 ? event.getDeltaY() : event.getDeltaX();
+                if (delta != 0) {
+                    scrollBy(delta < 0 ? 1 : -1);
+                    event.consume();
+                }
+            });
 
-            ViewTab selectedItem = viewGroup.getSelectionModel().getSelectedItem();
-            if (selectedItem != null) setView(selectedItem.getContent());
+            updateSelectedTab();
             viewGroup.getSelectionModel().selectedItemProperty().addListener(selectedItemListener);
+            sceneProperty().addListener(observable -> ensureMeasured());
+        }
+
+        private boolean isUpdating() {
+            return viewPaneSkin.getSkinnable().isUpdating();
+        }
+
+        void updateSelectedTab() {
+            ViewTab oldValue = shownTab;
+            ViewTab newValue = viewGroup.getSelectionModel().getSelectedItem();
+            if (oldValue == newValue) return;
+            shownTab = newValue;
+
+            if (oldValue != null) {
+                // The new content replaces the old one in place, the view is only cleared without one.
+                if (newValue == null) setView(null);
+                if (!oldValue.isSelected()) oldValue.cancelContentLoading();
+                oldValue.contentProperty().removeListener(tabContentListener);
+            }
+            if (newValue != null) {
+                showTab(newValue);
+                newValue.contentProperty().addListener(tabContentListener);
+                scrollToTab(newValue);
+            }
+            if (oldValue != null) {
+                viewPaneSkin.tabHidden(oldValue);
+            }
         }
 
         private void setView(Node content) {
             viewPaneSkin.divisionArea.setView(viewGroup.getPos(), content);
         }
 
+        private void showTab(ViewTab tab) {
+            viewPaneSkin.tabShown(tab);
+            if (tab.isContentLoaded() || tab.getAsyncContentFactory() == null) {
+                setView(tab.loadContent());
+            } else {
+                // The content listener replaces the placeholder once the content is created.
+                viewPaneSkin.divisionArea.setPlaceholder(viewGroup.getPos(), false);
+                tab.loadContentAsync(viewPaneSkin.getSkinnable().getContentExecutor()).whenComplete((node, throwable) -> {
+                    // The failure is shown until the tab is selected again, which retries the creation.
+                    if (throwable != null && !(throwable instanceof CancellationException) && shownTab == tab) {
+                        viewPaneSkin.divisionArea.setPlaceholder(viewGroup.getPos(), true);
+                    }
+                });
+            }
+        }
+
         public ViewGroup getViewGroup() {
             return viewGroup;
         }
 
-        public void addViewTab(ViewTab viewTab) {
-            getChildren().add(new TabButton(viewTab));
+        public TabButton getTabButton(ViewTab viewTab) {
+            return tabButtons.get(viewTab);
         }
 
-        public void removeViewTab(ViewTab viewTab) {
-            Iterator<Node> iterator = getChildren().iterator();
-            while (iterator.hasNext()) {
-                TabButton tabButton = (TabButton) iterator.next();
-                if (tabButton.getTab() == viewTab) {
-                    tabButton.getSkin().dispose();
-                    iterator.remove();
-                    return;
+        private void addViewTabs(int index, List<? extends ViewTab> viewTabs) {
+            for (ViewTab viewTab : viewTabs) {
+                viewTab.textProperty().addListener(tabSizeListener);
+                viewTab.graphicProperty().addListener(tabSizeListener);
+                TabButton tabButton = viewPaneSkin.claimTabButton(viewTab);
+                if (tabButton != null) {
+                    tabButtons.put(viewTab, tabButton);
+                    getChildren().add(tabButton);
                 }
             }
+            // Keep the visible tabs in place when tabs are inserted before them.
+            if (index < firstVisible) firstVisible += viewTabs.size();
+        }
+
+        private void removeViewTabs(int index, List<? extends ViewTab> viewTabs) {
+            List<TabButton> removedButtons = null;
+            for (ViewTab viewTab : viewTabs) {
+                viewTab.textProperty().removeListener(tabSizeListener);
+                viewTab.graphicProperty().removeListener(tabSizeListener);
+                setTabWidth(viewTab, -1);
+                TabButton tabButton = tabButtons.remove(viewTab);
+                if (tabButton != null) {
+                    if (removedButtons == null) removedButtons = new ArrayList<>();
+                    removedButtons.add(tabButton);
+                    viewPaneSkin.releaseTabButton(viewTab, tabButton);
+                }
+            }
+            if (removedButtons != null) getChildren().removeAll(removedButtons);
+            viewPaneSkin.tabsRemoved(viewTabs);
+            if (index < firstVisible) firstVisible -= Math.min(viewTabs.size(), firstVisible - index);
+        }
+
+        private void scrollBy(int delta) {
+            int value = clamp(firstVisible + delta, 0, Math.max(0, viewGroup.getTabs().size() - 1));
+            if (value != firstVisible) {
+                firstVisible = value;
+                requestLayout();
+            }
+        }
+
+        private void scrollToTab(ViewTab tab) {
+            scrollTarget = tab;
+            requestLayout();
+        }
+
+        private double getTabWidth(ViewTab tab) {
+            Double width = tabWidths.get(tab);
+            if (width != null) return width;
+            return tabWidths.isEmpty() ? 0 : tabWidthSum / tabWidths.size();
+        }
+
+        private void setTabWidth(ViewTab tab, double width) {
+            Double oldWidth = width >= 0 ? tabWidths.put(tab, width) : tabWidths.remove(tab);
+            if (oldWidth != null) tabWidthSum -= oldWidth;
+            if (width >= 0) tabWidthSum += width;
+            if (oldWidth == null ? width >= 0 : oldWidth != width) prefSizeChanged = true;
+        }
+
+        private void invalidatePrefSize() {
+            prefWidthCache = -1;
+            prefHeightCache = -1;
+            requestLayout();
+            if (getParent() instanceof SideBar) ((SideBar) getParent()).invalidatePrefSize();
+        }
+
+        private double measure(ViewTab tab) {
+            TabButton tabButton = tabButtons.get(tab);
+            if (tabButton == null) {
+                tabButton = unusedButtons.remove(tab);
+                if (tabButton == null) {
+                    tabButton = viewPaneSkin.obtainTabButton(tab);
+                    getChildren().add(tabButton);
+                    tabButton.applyCss();
+                }
+                tabButtons.put(tab, tabButton);
+            }
+            double width = snapSize(tabButton.prefWidth(-1));
+            setTabWidth(tab, width);
+            return width;
+        }
+
+        /**
+         * Creates the button of one tab as soon as the bar is shown, so that the preferred height is known before
+         * the first layout.
+         */
+        private void ensureMeasured() {
+            List<ViewTab> tabs = viewGroup.getTabs();
+            if (getScene() != null && tabButtons.isEmpty() && !tabs.isEmpty()) {
+                measure(tabs.get(clamp(firstVisible, 0, tabs.size() - 1)));
+                invalidatePrefSize();
+            }
+        }
+
+        private int fit(List<ViewTab> tabs, int first, double available) {
+            double used = 0;
+            int i = first;
+            for (; i < tabs.size(); i++) {
+                double width = measure(tabs.get(i));
+                if (used + width > available) break;
+                used += width;
+            }
+            fitWidth = used;
+            return i - first;
+        }
+
+        private void computeWindow(List<ViewTab> tabs, int first, double available) {
+            int count = fit(tabs, first, available);
+            boolean overflow = first > 0 || first + count < tabs.size();
+            if (overflow) {
+                available -= snapSize(getOverflowButton().prefWidth(-1));
+                count = fit(tabs, first, available);
+                // Fill the space left at the end with the tabs before the first one.
+                while (first > 0) {
+                    double width = measure(tabs.get(first - 1));
+                    if (fitWidth + width > available) break;
+                    fitWidth += width;
+                    first--;
+                    count++;
+                }
+                overflow = first > 0 || first + count < tabs.size();
+            }
+            windowFirst = first;
+            windowCount = count;
+            windowOverflow = overflow;
+        }
+
+        private Button getOverflowButton() {
+            if (overflowButton == null) {
+                overflowButton = new Button("\u00BB");
+                overflowButton.getStyleClass().setAll("overflow-button");
+                overflowButton.setOnAction(event -> showOverflowPopup());
+            }
+            if (overflowButton.getParent() != this) {
+                getChildren().add(overflowButton);
+                overflowButton.applyCss();
+            }
+            return overflowButton;
+        }
+
+        private void showOverflowPopup() {
+            if (overflowPopup == null) {
+                overflowTabs = new FilteredList<>(viewGroup.getTabs());
+                ListView<ViewTab> listView = new ListView<>(overflowTabs);
+                listView.setCellFactory(view -> new ListCell<ViewTab>() {
+                    @Override
+                    protected void updateItem(ViewTab item, boolean empty) {
+                        super.updateItem(item, empty);
+                        setText(empty || item == null ? null : item.getText());
+                    }
+                });
+                listView.setOnMouseClicked(event -> selectOverflowTab(listView.getSelectionModel().getSelectedItem()));
+                listView.setOnKeyPressed(event -> {
+                    if (event.getCode() == KeyCode.ENTER) {
+                        selectOverflowTab(listView.getSelectionModel().getSelectedItem());
+                    }
+                });
+
+                overflowFilter = new TextField();
+                overflowFilter.textProperty().addListener(observable -> {
+                    String filter = overflowFilter.getText().toLowerCase();
+                    overflowTabs.setPredicate(filter.isEmpty() ? null :
+                            tab -> tab.getText() != null && tab.getText().toLowerCase().contains(filter));
+                });
+                overflowFilter.setOnAction(event -> {
+                    if (!overflowTabs.isEmpty()) selectOverflowTab(overflowTabs.get(0));
+                });
+
+                VBox content = new VBox(overflowFilter, listView);
+                content.getStyleClass().setAll("tab-overflow-popup");
+                // The popup is not part of the scene of the view pane.
+                content.getStylesheets().add(viewPaneSkin.getSkinnable().getUserAgentStylesheet());
+
+                overflowPopup = new Popup();
+                overflowPopup.setAutoHide(true);
+                overflowPopup.getContent().add(content);
+            }
+            overflowFilter.clear();
+            Bounds bounds = overflowButton.localToScreen(overflowButton.getBoundsInLocal());
+            if (bounds == null) return;
+            overflowPopup.show(overflowButton, bounds.getMinX(), bounds.getMaxY());
+            overflowFilter.requestFocus();
+        }
+
+        private void selectOverflowTab(ViewTab tab) {
+            if (tab == null) return;
+            overflowPopup.hide();
+            tab.setSelected(true);
+            scrollToTab(tab);
         }
 
         public void dispose() {
             setView(null);
+            if (shownTab != null) {
+                shownTab.contentProperty().removeListener(tabContentListener);
+                shownTab = null;
+            }
+            viewPaneSkin.tabsRemoved(viewGroup.getTabs());
 
             viewGroup.getTabs().removeListener(tabChangeListener);
             viewGroup.getSelectionModel().selectedItemProperty().removeListener(selectedItemListener);
+            for (ViewTab viewTab : viewGroup.getTabs()) {
+                viewTab.textProperty().removeListener(tabSizeListener);
+                viewTab.graphicProperty().removeListener(tabSizeListener);
+            }
+            if (overflowPopup != null) overflowPopup.hide();
 
             getChildren().clear();
+            for (TabButton tabButton : tabButtons.values()) {
+                viewPaneSkin.recycleTabButton(tabButton);
+            }
+            tabButtons.clear();
+        }
+
+        @Override
+        public void requestLayout() {
+            // Any change of the tabs, the scroll position or the size of a button may change the visible tabs.
+            windowInvalid = true;
+            super.requestLayout();
+        }
+
+        /**
+         * Updates the visible tabs and their buttons for the given width. Called by the side bar before it lays out
+         * this bar, so that neither the layout nor the preferred size computation of this bar change its children.
+         *
+         * @return {@code true} if the visible buttons or a measured button width changed, and with them the
+         * preferred size of this bar
+         */
+        boolean prepareLayout(double width) {
+            double contentWidth = width - snappedLeftInset() - snappedRightInset();
+            if (!windowInvalid && contentWidth == preparedWidth) return false;
+            preparedWidth = contentWidth;
+            prefSizeChanged = false;
+
+            List<ViewTab> tabs = viewGroup.getTabs();
+            unusedButtons.putAll(tabButtons);
+            tabButtons.clear();
+
+            computeWindow(tabs, clamp(firstVisible, 0, tabs.size()), contentWidth);
+            if (scrollTarget != null) {
+                int index = tabs.indexOf(scrollTarget);
+                scrollTarget = null;
+                if (index >= 0 && (index < windowFirst || index >= windowFirst + windowCount)) {
+                    computeWindow(tabs, index, contentWidth);
+                }
+            }
+            firstVisible = windowFirst;
+            visibleCount = windowCount;
+
+            // Only the buttons of the visible tabs are kept, the ones measured beyond the window are recycled.
+            unusedButtons.putAll(tabButtons);
+            tabButtons.clear();
+            windowChildren.clear();
+            for (int i = windowFirst; i < windowFirst + windowCount; i++) {
+                ViewTab tab = tabs.get(i);
+                TabButton tabButton = unusedButtons.remove(tab);
+                tabButtons.put(tab, tabButton);
+                windowChildren.add(tabButton);
+            }
+            if (windowOverflow) windowChildren.add(getOverflowButton());
+            if (!windowChildren.equals(getChildren())) {
+                getChildren().setAll(windowChildren);
+                prefSizeChanged = true;
+            }
+            windowChildren.clear();
+            if (!unusedButtons.isEmpty()) {
+                for (TabButton tabButton : unusedButtons.values()) viewPaneSkin.recycleTabButton(tabButton);
+                unusedButtons.clear();
+            }
+
+            boolean changed = prefSizeChanged;
+            if (changed) {
+                prefSizeChanged = false;
+                prefWidthCache = -1;
+                prefHeightCache = -1;
+            }
+            windowInvalid = false;
+            return changed;
         }
 
         @Override
         protected double computePrefWidth(double height) {
-            double width = 0;
-            for (Node child : getChildren()) {
-                if (child.isManaged()) {
-                    width += snapSize(child.prefWidth(-1));
+            if (prefWidthCache < 0) {
+                double width = 0;
+                for (ViewTab tab : viewGroup.getTabs()) {
+                    width += getTabWidth(tab);
                 }
+                prefWidthCache = snappedLeftInset() + width + snappedRightInset();
             }
-            return snappedLeftInset() + width + snappedRightInset();
+            return prefWidthCache;
         }
 
         @Override
         protected double computePrefHeight(double width) {
-            double height = 0;
-            for (Node child : getChildren()) {
-                if (child.isManaged()) {
-                    double childHeight = snapSize(child.prefHeight(-1));
-                    if (childHeight > height) height = childHeight;
+            if (prefHeightCache < 0) {
+                double height = 0;
+                List<Node> children = getChildren();
+                for (int i = 0; i < children.size(); i++) {
+                    Node child = children.get(i);
+                    if (child.isManaged()) {
+                        double childHeight = snapSize(child.prefHeight(-1));
+                        if (childHeight > height) height = childHeight;
+                    }
                 }
+                prefHeightCache = snappedTopInset() + height + snappedBottomInset();
             }
-            return snappedTopInset() + height + snappedBottomInset();
+            return prefHeightCache;
         }
 
         @Override
         protected void layoutChildren() {
-            double width = getWidth();
-            double height = getHeight();
             double left = snappedLeftInset();
-            double right = snappedRightInset();
             double top = snappedTopInset();
-            double bottom = snappedBottomInset();
-            double contentWidth = width - left - right;
-            double contentHeight = height - top - bottom;
+            double contentWidth = getWidth() - left - snappedRightInset();
+            double contentHeight = getHeight() - top - snappedBottomInset();
 
-            Side secondary = viewGroup.getPos().getSecondary();
+            // Normally done by the side bar, unless this bar is laid out on its own.
+            if (windowInvalid || contentWidth != preparedWidth) prepareLayout(getWidth());
 
+            List<Node> children = getChildren();
+            Side secondary = viewGroup.getPos().getSecondary();
             if (secondary == Side.TOP || secondary == Side.LEFT) {// 自左向右布局
-                for (Node child : getChildren()) {
-                    if (child.isManaged()) {
-                        layoutInArea(child, left, top, contentWidth, contentHeight, 0, HPos.LEFT, VPos.CENTER);
-                        double childWidth = snapSize(child.prefWidth(-1));
-                        left += childWidth;
-                        contentWidth -= childWidth;
-                    }
+                for (int i = 0; i < children.size(); i++) {
+                    Node child = children.get(i);
+                    double childWidth = snapSize(child.prefWidth(-1));
+                    layoutInArea(child, left, top, childWidth, contentHeight, 0, HPos.LEFT, VPos.CENTER);
+                    left += childWidth;
                 }
             } else {// 自右向左布局
-                for (Node child : getChildren()) {
-                    if (child.isManaged()) {
-                        layoutInArea(child, left, top, contentWidth, contentHeight, 0, HPos.RIGHT, VPos.CENTER);
-                        contentWidth -= snapSize(child.prefWidth(-1));
-                    }
+                double x = left + contentWidth;
+                for (int i = 0; i < children.size(); i++) {
+                    Node child = children.get(i);
+                    double childWidth = snapSize(child.prefWidth(-1));
+                    x -= childWidth;
+                    layoutInArea(child, x, top, childWidth, contentHeight, 0, HPos.RIGHT, VPos.CENTER);
                 }
             }
         }
@@ -523,38 +1074,73 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         private final ViewPaneSkin viewPaneSkin;
         private final DivisionHelper layoutHelper;
 
-        private final Container[] views = new Container[8];
-        private Container center;
-        private final Divider[] dividers = new Divider[8];
+        private final Container[] containers;
+        private final Divider[] dividers;
+
+        private Region dragGhost;
+        private Group prewarmHolder;
 
-        private boolean performingLayout = false;
+        private static final long RESIZE_SETTLE_TIME = 150_000_000L;
+        private static final long RESIZE_INTERVAL = 200_000_000L;
+
+        private final boolean[] staleContainers;
+        private double lastWidth = -1;
+        private double lastHeight = -1;
+        private long lastResizeTime;
+        private long lastFullLayoutTime;
+        private boolean throttling;
+        private final AnimationTimer resizeTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (System.nanoTime() - lastResizeTime >= RESIZE_SETTLE_TIME) {
+                    stop();
+                    if (throttling) requestLayout();
+                }
+            }
+        };
 
         public DivisionArea(ViewPaneSkin viewPaneSkin) {
             this.viewPaneSkin = viewPaneSkin;
-            this.layoutHelper = new DivisionHelper();
+            this.layoutHelper = DivisionHelper.createEightPosLayout();
+            this.containers = new Container[layoutHelper.getContainerCount()];
+            this.dividers = new Divider[layoutHelper.getDividerCount()];
+            this.staleContainers = new boolean[containers.length];
 
             getStyleClass().setAll("division-area");
         }
 
         public void setView(EightPos pos, Node content) {
-            Container view = views[pos.ordinal()];
+            Container container = getContainer(pos);
+            boolean managed = container.isManaged();
+            container.setContent(content);
+            if (managed != container.isManaged()) updateDivider(pos);
+        }
+
+        public void setPlaceholder(EightPos pos, boolean failed) {
+            Container container = getContainer(pos);
+            boolean managed = container.isManaged();
+            container.showPlaceholder(failed);
+            if (managed != container.isManaged()) updateDivider(pos);
+        }
+
+        private Container getContainer(EightPos pos) {
+            Container view = containers[pos.ordinal()];
             if (view == null) {
                 view = new Container(pos);
                 getChildren().add(view);
-                views[pos.ordinal()] = view;
+                containers[pos.ordinal()] = view;
             }
-            view.setContent(content);
-            layoutHelper.containers[pos.ordinal()].peer = view;
-            updateDivider(pos);
+            return view;
         }
 
         public void setCenter(Node content) {
+            Container center = containers[DivisionHelper.CENTER];
             if (center == null) {
                 center = new Container(null);
                 getChildren().add(center);
+                containers[DivisionHelper.CENTER] = center;
             }
             center.setContent(content);
-            layoutHelper.center.peer = center;
         }
 
         private void updateDivider(EightPos pos) {
@@ -581,42 +1167,172 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         private void setDivider(DividerType type, boolean enable) {
             Divider divider = dividers[type.ordinal()];
             if (divider == null) {
-                divider = new Divider(viewPaneSkin.getSkinnable().getDivider(type));
+                divider = new Divider(this, viewPaneSkin.getSkinnable().getDivider(type));
                 dividers[type.ordinal()] = divider;
-                layoutHelper.dividers[type.ordinal()].peer = divider;
                 getChildren().add(divider);
             }
             divider.setManaged(enable);
             divider.setVisible(enable);
         }
 
+        /**
+         * Applies CSS to the content and lays it out at the size of its container while it is not shown.
+         */
+        void prewarm(EightPos pos, Node content) {
+            if (prewarmHolder == null) {
+                prewarmHolder = new Group();
+                prewarmHolder.setManaged(false);
+                prewarmHolder.setVisible(false);
+                getChildren().add(prewarmHolder);
+            }
+            prewarmHolder.getChildren().add(content);
+            content.applyCss();
+            Container container = containers[pos.ordinal()];
+            if (isManaged(container) && container.getWidth() > 0 && container.getHeight() > 0) {
+                content.resize(container.getWidth() - container.snappedLeftInset() - container.snappedRightInset(),
+                        container.getHeight() - container.snappedTopInset() - container.snappedBottomInset());
+            } else {
+                content.autosize();
+            }
+            if (content instanceof Parent) ((Parent) content).layout();
+            prewarmHolder.getChildren().remove(content);
+        }
+
+        void showDragGhost(Divider divider, double position) {
+            if (dragGhost == null) {
+                dragGhost = new Region();
+                dragGhost.getStyleClass().setAll("divider-ghost");
+                dragGhost.setManaged(false);
+                dragGhost.setMouseTransparent(true);
+                dragGhost.setVisible(false);
+                getChildren().add(dragGhost);
+            }
+            if (!dragGhost.isVisible()) {
+                dragGhost.toFront();
+                dragGhost.setVisible(true);
+            }
+            double offset = (position - divider.getPosition()) * divider.getAreaSize();
+            if (divider.isVertical()) {
+                dragGhost.resizeRelocate(divider.getLayoutX() + offset, divider.getLayoutY(), divider.getWidth(), divider.getHeight());
+            } else {
+                dragGhost.resizeRelocate(divider.getLayoutX(), divider.getLayoutY() + offset, divider.getWidth(), divider.getHeight());
+            }
+        }
+
+        void hideDragGhost() {
+            if (dragGhost != null) dragGhost.setVisible(false);
+        }
+
         private int getManagedViewCount(EightPos a, EightPos b) {
             int result = 0;
-            DivisionHelper.Container[] containers = layoutHelper.containers;
-            if (containers[a.ordinal()].isManaged()) result++;
-            if (containers[b.ordinal()].isManaged()) result++;
+            if (isManaged(containers[a.ordinal()])) result++;
+            if (isManaged(containers[b.ordinal()])) result++;
             return result;
         }
 
         @Override
         protected void layoutChildren() {
-            if (performingLayout) return;
-            performingLayout = true;
-
             double top = snappedTopInset();
             double left = snappedLeftInset();
             double bottom = snappedBottomInset();
             double right = snappedRightInset();
             double width = getWidth();
             double height = getHeight();
+            boolean throttled = isResizeThrottled(width, height);
+
+            for (int i = 0; i < containers.length; i++) {
+                setContainer(i, containers[i]);
+            }
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                if (isManaged(divider)) {
+                    layoutHelper.setDivider(i, true, divider.getDividerWidth(), divider.getPosition());
+                    layoutHelper.setResizeWeight(i, divider.getResizeWeight());
+                } else {
+                    layoutHelper.setDivider(i, false, 0, 0);
+                }
+            }
 
             layoutHelper.layout(left, top, width - left - right, height - top - bottom, isSnapToPixel());
 
-            performingLayout = false;
+            for (int i = 0; i < containers.length; i++) {
+                layoutContainer(i, containers[i], throttled && i != DivisionHelper.CENTER);
+            }
+            for (int i = 0; i < dividers.length; i++) {
+                Divider divider = dividers[i];
+                if (isManaged(divider)) {
+                    divider.validDividerPosition(layoutHelper.getPosition(i), layoutHelper.getAreaSize(i),
+                            layoutHelper.getMinPosition(i), layoutHelper.getMaxPosition(i));
+                    if (layoutHelper.isDividerChanged(i)) {
+                        divider.resizeRelocate(layoutHelper.getDividerX(i), layoutHelper.getDividerY(i),
+                                layoutHelper.getDividerWidth(i), layoutHelper.getDividerHeight(i));
+                    }
+                }
+            }
+        }
+
+        private void setContainer(int index, Container container) {
+            if (isManaged(container)) {
+                layoutHelper.setContainer(index, true, container.getCachedMinWidth(), container.getCachedMinHeight());
+            } else {
+                layoutHelper.setContainer(index, false, 0, 0);
+            }
+        }
+
+        private boolean isResizeThrottled(double width, double height) {
+            long now = System.nanoTime();
+            if (width != lastWidth || height != lastHeight) {
+                lastWidth = width;
+                lastHeight = height;
+                if (viewPaneSkin.getSkinnable().isThrottleLiveResize()) {
+                    // Only the sizes following a recent one are treated as a live resize.
+                    boolean burst = now - lastResizeTime < RESIZE_SETTLE_TIME;
+                    lastResizeTime = now;
+                    resizeTimer.start();
+                    if (burst && now - lastFullLayoutTime < RESIZE_INTERVAL) {
+                        throttling = true;
+                        return true;
+                    }
+                }
+            }
+            throttling = false;
+            lastFullLayoutTime = now;
+            return false;
+        }
+
+        private void layoutContainer(int index, Container container, boolean throttled) {
+            if (!isManaged(container)) {
+                if (staleContainers[index]) {
+                    staleContainers[index] = false;
+                    container.setCache(false);
+                }
+                return;
+            }
+            if (throttled) {
+                if (layoutHelper.isContainerChanged(index)) {
+                    // Move the content as a cached bitmap and resize it on a later pass.
+                    container.setCache(true);
+                    container.relocate(layoutHelper.getContainerX(index), layoutHelper.getContainerY(index));
+                    staleContainers[index] = true;
+                }
+            } else if (staleContainers[index] || layoutHelper.isContainerChanged(index)) {
+                if (staleContainers[index]) {
+                    staleContainers[index] = false;
+                    container.setCache(false);
+                }
+                container.resizeRelocate(layoutHelper.getContainerX(index), layoutHelper.getContainerY(index),
+                        layoutHelper.getContainerWidth(index), layoutHelper.getContainerHeight(index));
+            }
+        }
+
+        private static boolean isManaged(Node node) {
+            return node != null && node.isManaged();
         }
     }
 
     static final class Divider extends Region {
+        private final DivisionArea divisionArea;
+        private final ViewPane viewPane;
         private final ViewPane.Divider peer;
 
         private double position;
@@ -628,7 +1344,21 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         private double initialPos;
         private double mousePos;
 
-        public Divider(ViewPane.Divider peer) {
+        private boolean dragging;
+        private boolean ghostDragging;
+        private boolean dragPending;
+        private double dragPosition;
+        private final AnimationTimer dragTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                applyDrag();
+            }
+        };
+
+        public Divider(DivisionArea divisionArea, ViewPane.Divider peer) {
+            this.divisionArea = divisionArea;
+            this.viewPane = divisionArea.viewPaneSkin.getSkinnable();
             this.peer = peer;
             this.position = peer.getPosition();
 
@@ -643,19 +1373,46 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
 
             addEventHandler(MouseEvent.ANY, Event::consume);
             setOnMousePressed(event -> {
-                initialPos = getPosition();
+                dragging = true;
+                ghostDragging = !viewPane.isContinuousLayout();
+                initialPos = dragPosition = getPosition();
                 mousePos = isVertical() ? event.getSceneX() : event.getSceneY();
             });
             setOnMouseDragged(event -> {
                 double nowMousePos = isVertical() ? event.getSceneX() : event.getSceneY();
                 double delta = nowMousePos - mousePos;
-                setPosition(initialPos + delta / size);
+                // Coalesce the drag events of a frame, only the last one is applied on the next pulse.
+                dragPosition = initialPos + delta / size;
+                if (!dragPending) {
+                    dragPending = true;
+                    dragTimer.start();
+                }
+            });
+            setOnMouseReleased(event -> {
+                if (dragPending) {
+                    dragTimer.stop();
+                    applyDrag();
+                }
+                dragging = false;
+                if (ghostDragging) {
+                    ghostDragging = false;
+                    divisionArea.hideDragGhost();
+                    setPosition(dragPosition);
+                } else if (viewPane.isCommitDividerOnRelease()) {
+                    commitPosition();
+                }
             });
 
             peer.positionProperty().addListener(observable -> {
-                setPosition(peer.getPosition());
-                requestParentLayout();
+                double value = peer.getPosition();
+                if (value != position) {
+                    // An out of range value is clamped and written back by the next layout pass.
+                    updatePosition(value);
+                    if (value != position) requestParentLayout();
+                }
             });
+            peer.resizePolicyProperty().addListener(observable -> requestParentLayout());
+            peer.resizeWeightProperty().addListener(observable -> requestParentLayout());
         }
 
         public boolean isVertical() {
@@ -666,20 +1423,70 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
             return position;
         }
 
-        private void setPosition(double position) {
-            this.position = clamp(position, min, max);
-            this.peer.setPosition(position);
+        private void setPosition(double value) {
+            updatePosition(value);
+            commitPosition();
+        }
+
+        private void updatePosition(double value) {
+            value = clamp(value, min, max);
+            if (value != position) {
+                position = value;
+                requestParentLayout();
+            }
+        }
+
+        private void commitPosition() {
+            if (peer.getPosition() != position) {
+                peer.setPosition(position);
+            }
+        }
+
+        private void applyDrag() {
+            dragPending = false;
+            if (ghostDragging) {
+                divisionArea.showDragGhost(this, clamp(dragPosition, min, max));
+            } else if (isCommitDeferred()) {
+                updatePosition(dragPosition);
+            } else {
+                setPosition(dragPosition);
+            }
+        }
+
+        private boolean isCommitDeferred() {
+            return dragging && viewPane.isCommitDividerOnRelease();
         }
 
         public double getDividerWidth() {
             return isVertical() ? prefWidth(-1) : prefHeight(-1);
         }
 
-        public void validDividerPosition(double size, double min, double max) {
+        public double getAreaSize() {
+            return size;
+        }
+
+        public double getResizeWeight() {
+            switch (peer.getResizePolicy()) {
+                case FIXED:
+                    // Keep the views of the side anchored to their edge.
+                    DividerType type = peer.getType();
+                    Side side = type.getSide();
+                    return type.isPrimary() && (side == Side.BOTTOM || side == Side.RIGHT) ? 1 : 0;
+                case WEIGHTED:
+                    return clamp(peer.getResizeWeight(), 0, 1);
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        public void validDividerPosition(double position, double size, double min, double max) {
             this.size = size;
             this.min = min;
             this.max = max;
-            setPosition(getPosition());
+            // Called during layout with the position the layout has already been computed for, which is clamped
+            // and moved by the resize policy, so only the public position may need to catch up.
+            this.position = position;
+            if (!isCommitDeferred()) commitPosition();
         }
 
         @Override
@@ -695,8 +1502,14 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
 
     static final class Container extends Region {
         public static final PseudoClass CENTER = PseudoClass.getPseudoClass("center");
+        public static final PseudoClass FAILED = PseudoClass.getPseudoClass("failed");
 
         private Node content;
+        private Region placeholder;
+
+        private double cachedMinWidth = -1;
+        private double cachedMinHeight = -1;
+        private final InvalidationListener minSizeInvalidationListener = observable -> invalidateMinSize();
 
         public Container(EightPos pos) {
             if (pos != null) {
@@ -706,20 +1519,60 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
             }
 
             getStyleClass().setAll("container");
+            setManaged(false);
+            setVisible(false);
+
+            insetsProperty().addListener(minSizeInvalidationListener);
+            minWidthProperty().addListener(minSizeInvalidationListener);
+            minHeightProperty().addListener(minSizeInvalidationListener);
         }
 
         public void setContent(Node content) {
-            if (this.content != null) {
-                getChildren().remove(this.content);
-            }
+            if (this.content == content) return;
             this.content = content;
 
             boolean flag = content != null;
             if (flag) {
-                getChildren().add(content);
+                getChildren().setAll(content);
+            } else {
+                getChildren().clear();
             }
             setManaged(flag);
             setVisible(flag);
+            invalidateMinSize();
+        }
+
+        public void showPlaceholder(boolean failed) {
+            if (placeholder == null) {
+                placeholder = new Region();
+                placeholder.getStyleClass().setAll("placeholder");
+            }
+            placeholder.pseudoClassStateChanged(FAILED, failed);
+            setContent(placeholder);
+        }
+
+        // The min size of deep content is expensive to compute and is queried on every division layout,
+        // so it is only recomputed after the content changes or requests a layout itself. Resizing the content
+        // during the layout of this container does not request a layout of it.
+        public double getCachedMinWidth() {
+            if (cachedMinWidth < 0) cachedMinWidth = minWidth(-1);
+            return cachedMinWidth;
+        }
+
+        public double getCachedMinHeight() {
+            if (cachedMinHeight < 0) cachedMinHeight = minHeight(-1);
+            return cachedMinHeight;
+        }
+
+        @Override
+        public void requestLayout() {
+            invalidateMinSize();
+            super.requestLayout();
+        }
+
+        private void invalidateMinSize() {
+            cachedMinWidth = -1;
+            cachedMinHeight = -1;
         }
 
         @Override
@@ -748,21 +1601,45 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
     }
 
     static final class TabButton extends ButtonBase {
-        private final ViewTab tab;
+        private final ObjectProperty<ViewTab> tab = new SimpleObjectProperty<>(this, "tab");
 
-        public TabButton(ViewTab tab) {
-            this.tab = tab;
+        public TabButton(ContentPrewarmer contentPrewarmer, ViewTab tab) {
+            setTab(tab);
 
             getStyleClass().setAll("view-tab-button");
+
+            InvalidationListener prewarmListener = observable -> {
+                ViewTab viewTab = getTab();
+                if (viewTab == null) return;
+                if (isHover() || isFocused()) {
+                    contentPrewarmer.request(viewTab);
+                } else {
+                    contentPrewarmer.cancel(viewTab);
+                }
+            };
+            hoverProperty().addListener(prewarmListener);
+            focusedProperty().addListener(prewarmListener);
         }
 
-        public ViewTab getTab() {
+        /**
+         * The tab shown by this button, buttons are rebound to another tab when they are reused.
+         */
+        public ObjectProperty<ViewTab> tabProperty() {
             return tab;
         }
 
+        public ViewTab getTab() {
+            return tab.get();
+        }
+
+        public void setTab(ViewTab tab) {
+            this.tab.set(tab);
+        }
+
         @Override
         public void fire() {
-            if (!isDisabled()) {
+            ViewTab tab = getTab();
+            if (!isDisabled() && tab != null) {
                 tab.setSelected(!tab.isSelected());
                 fireEvent(new ActionEvent());
             }
@@ -778,42 +1655,75 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         private static final PseudoClass SELECTED_PSEUDO_CLASS =
                 PseudoClass.getPseudoClass("selected");
 
-        private final ViewTab tab;
+        private final InvalidationListener viewGroupListener = observable -> updatePos();
+        private final InvalidationListener selectedListener = observable -> updateSelected();
+
+        private ViewTab tab;
 
         public TabButtonSkin(TabButton tabButton) {
             super(tabButton, new ButtonBehavior<>(tabButton));
 
-            this.tab = tabButton.getTab();
-
-            tabButton.textProperty().bind(tab.textProperty());
-            tabButton.graphicProperty().bind(tab.graphicProperty());
-            tabButton.contextMenuProperty().bind(tab.contextMenuProperty());
-            tabButton.onContextMenuRequestedProperty().bind(tab.onContextMenuRequestedProperty());
+            registerChangeListener(tabButton.tabProperty(), "TAB");
 
-            registerChangeListener(tab.viewGroupProperty(), "VIEW_GROUP");
-            registerChangeListener(tab.selectedProperty(), "SELECTED");
-
-            updatePos();
-            updateSelected();
+            updateTab();
         }
 
         @Override
         protected void handleControlPropertyChanged(String p) {
             if ("GRAPHIC".equals(p)) {
                 updateGraphic();
-            } else if ("SELECTED".equals(p)) {
-                updateSelected();
-            } else if ("VIEW_GROUP".equals(p)) {
-                updatePos();
+            } else if ("TAB".equals(p)) {
+                updateTab();
             }
             super.handleControlPropertyChanged(p);
         }
 
+        @Override
+        public void dispose() {
+            unbindTab();
+            super.dispose();
+        }
+
+        private void updateTab() {
+            unbindTab();
+
+            TabButton tabButton = getSkinnable();
+            tab = tabButton.getTab();
+            if (tab != null) {
+                tabButton.textProperty().bind(tab.textProperty());
+                tabButton.graphicProperty().bind(tab.graphicProperty());
+                tabButton.contextMenuProperty().bind(tab.contextMenuProperty());
+                tabButton.onContextMenuRequestedProperty().bind(tab.onContextMenuRequestedProperty());
+
+                tab.viewGroupProperty().addListener(viewGroupListener);
+                tab.selectedProperty().addListener(selectedListener);
+            }
+
+            updatePos();
+            updateSelected();
+        }
+
+        private void unbindTab() {
+            if (tab == null) return;
+
+            TabButton tabButton = getSkinnable();
+            tabButton.textProperty().unbind();
+            tabButton.graphicProperty().unbind();
+            tabButton.contextMenuProperty().unbind();
+            tabButton.onContextMenuRequestedProperty().unbind();
+
+            tab.viewGroupProperty().removeListener(viewGroupListener);
+            tab.selectedProperty().removeListener(selectedListener);
+            tab = null;
+        }
+
         public EightPos getPos() {
-            return tab.getViewGroup().getPos();
+            ViewGroup viewGroup = tab != null ? tab.getViewGroup() : null;
+            return viewGroup != null ? viewGroup.getPos() : null;
         }
 
         private void updatePos() {
+            if (getPos() == null) return;
             if (getPos().getPrimary() == Side.LEFT) {
                 getSkinnable().setRotate(180);
             } else {
@@ -823,9 +1733,9 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         }
 
         private void updateGraphic() {
-            Node graphic = tab.getGraphic();
+            Node graphic = tab != null ? tab.getGraphic() : null;
 
-            if (graphic == null) return;
+            if (graphic == null || getPos() == null) return;
             Side side = getPos().getPrimary();
             if (side == Side.LEFT) {
                 graphic.setRotate(90);
@@ -840,7 +1750,7 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
         }
 
         private void updateSelected() {
-            pseudoClassStateChanged(SELECTED_PSEUDO_CLASS, tab.isSelected());
+            pseudoClassStateChanged(SELECTED_PSEUDO_CLASS, tab != null && tab.isSelected());
         }
     }
 
@@ -851,4 +1761,8 @@ public class ViewPaneSkin extends SkinBase<ViewPane> {
     private static double clamp(double value, double min, double max) {
         return Math.min(Math.max(value, min), max);
     }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.min(Math.max(value, min), max);
+    }
 }
@@ -0,0 +1,60 @@
+package com.github.mouse0w0.viewpane;
+
+import com.sun.javafx.application.PlatformImpl;
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Starts the JavaFX toolkit once for the tests which need it. The tests are skipped where the toolkit cannot
+ * start, e.g. without a display.
+ */
+final class FxToolkit {
+    private static Boolean started;
+
+    private FxToolkit() {
+    }
+
+    static synchronized void assumeStarted() {
+        if (started == null) {
+            CountDownLatch latch = new CountDownLatch(1);
+            try {
+                PlatformImpl.startup(latch::countDown);
+                started = latch.await(10, TimeUnit.SECONDS);
+            } catch (RuntimeException | InterruptedException e) {
+                started = false;
+            }
+        }
+        assumeTrue(started, "The JavaFX toolkit is not available");
+    }
+
+    static <T> T call(Callable<T> callable) throws Exception {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                future.complete(callable.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        try {
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) throw (Exception) e.getCause();
+            throw (Error) e.getCause();
+        }
+    }
+
+    static void run(Runnable runnable) throws Exception {
+        call(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+}
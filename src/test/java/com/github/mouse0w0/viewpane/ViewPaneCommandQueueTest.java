@@ -0,0 +1,111 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.geometry.EightPos;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewPaneCommandQueueTest {
+
+    @BeforeAll
+    static void startToolkit() {
+        FxToolkit.assumeStarted();
+    }
+
+    @Test
+    void mergedValueIsAppliedAtTheFirstPost() throws Exception {
+        ViewPane viewPane = FxToolkit.call(ViewPane::new);
+        ViewPaneCommandQueue queue = viewPane.getCommandQueue();
+        ViewTab tab = new ViewTab("initial");
+        List<String> observed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch drained = new CountDownLatch(1);
+
+        // Posted in one go on the FX thread, so that no pulse drains the queue in between.
+        FxToolkit.run(() -> {
+            queue.setText(tab, "a");
+            queue.execute(() -> observed.add(tab.getText()));
+            queue.setText(tab, "b");
+            queue.execute(() -> observed.add(viewPane.isUpdating() ? tab.getText() : "not updating"));
+            queue.execute(drained::countDown);
+        });
+        assertTrue(drained.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("b", "b"), observed);
+
+        CountDownLatch drainedAgain = new CountDownLatch(1);
+        queue.setText(tab, "c");
+        queue.execute(drainedAgain::countDown);
+        assertTrue(drainedAgain.await(10, TimeUnit.SECONDS));
+        assertEquals("c", FxToolkit.call(tab::getText));
+    }
+
+    @Test
+    void selectionRunsInPostingOrder() throws Exception {
+        ViewPane viewPane = FxToolkit.call(ViewPane::new);
+        ViewPaneCommandQueue queue = viewPane.getCommandQueue();
+        ViewTab tab = new ViewTab("tab");
+        ViewTab other = new ViewTab("other");
+        CountDownLatch drained = new CountDownLatch(1);
+
+        FxToolkit.run(() -> {
+            queue.addTab(EightPos.LEFT_TOP, tab);
+            queue.addTab(EightPos.RIGHT_TOP, other);
+            queue.selectTab(tab);
+            queue.closeTab(tab);
+            queue.addTab(EightPos.RIGHT_TOP, tab);
+            queue.selectTab(tab);
+            queue.execute(drained::countDown);
+        });
+        assertTrue(drained.await(10, TimeUnit.SECONDS));
+
+        FxToolkit.run(() -> {
+            assertSame(tab, viewPane.getViewGroup(EightPos.RIGHT_TOP).getSelectionModel().getSelectedItem());
+            assertTrue(viewPane.getViewGroup(EightPos.LEFT_TOP).getTabs().isEmpty());
+        });
+    }
+
+    @Test
+    void commandsOfEachProducerRunInOrder() throws Exception {
+        ViewPane viewPane = FxToolkit.call(ViewPane::new);
+        ViewPaneCommandQueue queue = viewPane.getCommandQueue();
+        int producers = 4;
+        int commands = 500;
+        List<List<Integer>> observed = new ArrayList<>();
+        for (int i = 0; i < producers; i++) observed.add(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(producers * commands);
+
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            List<Integer> list = observed.get(i);
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < commands; j++) {
+                    int value = j;
+                    // Only touched on the FX thread.
+                    queue.execute(() -> {
+                        list.add(value);
+                        done.countDown();
+                    });
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        FxToolkit.run(() -> {
+            for (List<Integer> list : observed) {
+                assertEquals(commands, list.size());
+                for (int j = 0; j < commands; j++) assertEquals(j, (int) list.get(j));
+            }
+        });
+    }
+}
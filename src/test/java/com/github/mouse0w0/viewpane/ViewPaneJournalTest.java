@@ -0,0 +1,216 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.geometry.EightPos;
+import javafx.scene.Group;
+import javafx.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewPaneJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private Path snapshotFile() {
+        return directory.resolve("layout.bin");
+    }
+
+    private static byte[] records() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ViewPaneJournal.writeGroupRecord(out, EightPos.LEFT_TOP.ordinal(), new String[]{"project"}, "project");
+        ViewPaneJournal.writeDividerRecord(out, DividerType.LEFT_PRIMARY.ordinal(), 0.2);
+        ViewPaneJournal.writeGroupRecord(out, EightPos.LEFT_TOP.ordinal(), new String[]{"project", "structure"}, "structure");
+        ViewPaneJournal.writeDividerRecord(out, DividerType.LEFT_PRIMARY.ordinal(), 0.3);
+        return out.toByteArray();
+    }
+
+    /**
+     * A group record for {@link EightPos#LEFT_TOP} claiming more tabs than it has, with a valid checksum.
+     */
+    private static byte[] hugeGroupRecord() {
+        byte[] payload = ByteBuffer.allocate(6).put((byte) 1).put((byte) EightPos.LEFT_TOP.ordinal())
+                .putInt(Integer.MAX_VALUE).array();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return ByteBuffer.allocate(payload.length + 2 * Integer.BYTES)
+                .putInt(payload.length).put(payload).putInt((int) crc.getValue()).array();
+    }
+
+    /**
+     * A snapshot claiming more tabs than it has.
+     */
+    private static byte[] hugeSnapshot() {
+        return ByteBuffer.allocate(11).putInt(0x56505331).put((byte) 1).put((byte) 1).put((byte) 0)
+                .putInt(Integer.MAX_VALUE).array();
+    }
+
+    private static void assertFullyReplayed(ViewPaneState state) {
+        assertEquals(Arrays.asList("project", "structure"), state.getTabIds(EightPos.LEFT_TOP));
+        assertEquals("structure", state.getSelectedTabId(EightPos.LEFT_TOP));
+        assertEquals(0.3, state.getDividerPosition(DividerType.LEFT_PRIMARY));
+    }
+
+    @Test
+    void loadWithoutFiles() throws IOException {
+        assertNull(ViewPaneJournal.load(snapshotFile()));
+    }
+
+    @Test
+    void replayAppliesRecordsInOrder() throws IOException {
+        Files.write(ViewPaneJournal.getJournalFile(snapshotFile()), records());
+        assertFullyReplayed(ViewPaneJournal.load(snapshotFile()));
+    }
+
+    @Test
+    void replayOnTopOfSnapshot() throws IOException {
+        ViewPaneState snapshot = new ViewPaneState();
+        snapshot.setGroup(EightPos.BOTTOM_LEFT, new String[]{"console"}, "console");
+        snapshot.setGroup(EightPos.LEFT_TOP, new String[]{"old"}, null);
+        Files.write(snapshotFile(), snapshot.toBinary());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(records());
+        ViewPaneJournal.writeGroupRemovedRecord(out, EightPos.BOTTOM_LEFT.ordinal());
+        Files.write(ViewPaneJournal.getJournalFile(snapshotFile()), out.toByteArray());
+
+        ViewPaneState state = ViewPaneJournal.load(snapshotFile());
+        assertFullyReplayed(state);
+        assertEquals(Collections.emptyList(), state.getTabIds(EightPos.BOTTOM_LEFT));
+    }
+
+    @Test
+    void tornLastRecordIsDropped() throws IOException {
+        byte[] records = records();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(records);
+        ViewPaneJournal.writeDividerRecord(out, DividerType.LEFT_PRIMARY.ordinal(), 0.9);
+        byte[] bytes = out.toByteArray();
+
+        for (int length = records.length; length < bytes.length; length++) {
+            Files.write(ViewPaneJournal.getJournalFile(snapshotFile()), Arrays.copyOf(bytes, length));
+            assertFullyReplayed(ViewPaneJournal.load(snapshotFile()));
+        }
+    }
+
+    @Test
+    void replayStopsAtChecksumMismatch() throws IOException {
+        byte[] records = records();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(records);
+        int corruptAt = out.size() + Integer.BYTES + 2;
+        ViewPaneJournal.writeDividerRecord(out, DividerType.LEFT_PRIMARY.ordinal(), 0.9);
+        ViewPaneJournal.writeDividerRecord(out, DividerType.LEFT_PRIMARY.ordinal(), 0.8);
+        byte[] bytes = out.toByteArray();
+        bytes[corruptAt] ^= 0x40;
+
+        Files.write(ViewPaneJournal.getJournalFile(snapshotFile()), bytes);
+        assertFullyReplayed(ViewPaneJournal.load(snapshotFile()));
+    }
+
+    @Test
+    void undecodableRecordIsSkipped() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(records());
+        out.write(hugeGroupRecord());
+        ViewPaneJournal.writeDividerRecord(out, DividerType.LEFT_PRIMARY.ordinal(), 0.4);
+        Files.write(ViewPaneJournal.getJournalFile(snapshotFile()), out.toByteArray());
+
+        ViewPaneState state = ViewPaneJournal.load(snapshotFile());
+        assertEquals(Arrays.asList("project", "structure"), state.getTabIds(EightPos.LEFT_TOP));
+        assertEquals(0.4, state.getDividerPosition(DividerType.LEFT_PRIMARY));
+    }
+
+    @Test
+    void corruptSnapshotFallsBackToJournal() throws IOException {
+        Files.write(snapshotFile(), new byte[]{0x56, 0x50, 0x53});
+        Files.write(ViewPaneJournal.getJournalFile(snapshotFile()), records());
+        assertFullyReplayed(ViewPaneJournal.load(snapshotFile()));
+    }
+
+    @Test
+    void compactionFoldsJournalIntoSnapshot() throws IOException {
+        Path journalFile = ViewPaneJournal.getJournalFile(snapshotFile());
+        Files.write(journalFile, records());
+        try (FileChannel journal = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ViewPaneJournal.compact(snapshotFile(), journal);
+        }
+
+        assertEquals(0, Files.size(journalFile));
+        assertFalse(Files.exists(snapshotFile().resolveSibling("layout.bin.tmp")));
+        assertFullyReplayed(ViewPaneState.fromBinary(Files.readAllBytes(snapshotFile())));
+        assertFullyReplayed(ViewPaneJournal.load(snapshotFile()));
+    }
+
+    @Test
+    void compactionQuarantinesCorruptSnapshot() throws IOException {
+        assertCompactionQuarantines(new byte[]{0x56, 0x50, 0x53});
+    }
+
+    @Test
+    void compactionQuarantinesSnapshotWithHugeTabCount() throws IOException {
+        assertCompactionQuarantines(hugeSnapshot());
+    }
+
+    private void assertCompactionQuarantines(byte[] corrupt) throws IOException {
+        Files.write(snapshotFile(), corrupt);
+        Path journalFile = ViewPaneJournal.getJournalFile(snapshotFile());
+        Files.write(journalFile, records());
+        try (FileChannel journal = FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ViewPaneJournal.compact(snapshotFile(), journal);
+        }
+
+        Path corruptFile = ViewPaneJournal.getCorruptFile(snapshotFile());
+        assertTrue(Files.exists(corruptFile));
+        assertArrayEquals(corrupt, Files.readAllBytes(corruptFile));
+        assertFullyReplayed(ViewPaneJournal.load(snapshotFile()));
+    }
+
+    @Test
+    void failedWriteIsRetried() throws Exception {
+        FxToolkit.assumeStarted();
+        Path snapshotFile = directory.resolve("missing").resolve("layout.bin");
+        ViewPaneJournal journal = FxToolkit.call(() -> {
+            ViewPane viewPane = new ViewPane();
+            ViewTab tab = new ViewTab("project", new Group());
+            tab.setId("project");
+            viewPane.getViewGroup(EightPos.LEFT_TOP).getTabs().add(tab);
+            ViewPaneJournal result = new ViewPaneJournal(viewPane, snapshotFile);
+            result.setDebounceDelay(Duration.millis(10));
+            result.flush();
+            return result;
+        });
+
+        awaitError(journal, true);
+        Files.createDirectories(snapshotFile.getParent());
+        awaitError(journal, false);
+        FxToolkit.call(journal::closeAsync).get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList("project"),
+                ViewPaneJournal.load(snapshotFile).getTabIds(EightPos.LEFT_TOP));
+    }
+
+    private static void awaitError(ViewPaneJournal journal, boolean failed) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (FxToolkit.call(() -> journal.getError() != null) != failed) {
+            assertTrue(System.nanoTime() < deadline, failed ? "write didn't fail" : "write wasn't retried");
+            Thread.sleep(10);
+        }
+    }
+}
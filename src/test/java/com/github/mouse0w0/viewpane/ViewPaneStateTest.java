@@ -0,0 +1,244 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.geometry.EightPos;
+import javafx.scene.Group;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewPaneStateTest {
+    static final int TAB_COUNT = 200;
+    static final int RUNS = 10;
+
+    private static ViewPaneState createState() {
+        ViewPaneState state = new ViewPaneState();
+        state.setGroup(EightPos.LEFT_TOP, new String[]{"project", "structure \"quoted\""}, "structure \"quoted\"");
+        state.setGroup(EightPos.BOTTOM_LEFT, new String[]{"console"}, null);
+        state.setDividerPosition(DividerType.LEFT_PRIMARY, 0.25);
+        state.setDividerPosition(DividerType.BOTTOM_SECONDARY, 0.75);
+        return state;
+    }
+
+    private static void assertStateEquals(ViewPaneState expected, ViewPaneState actual) {
+        for (EightPos pos : EightPos.values()) {
+            assertEquals(expected.getTabIds(pos), actual.getTabIds(pos), pos.name());
+            assertEquals(expected.getSelectedTabId(pos), actual.getSelectedTabId(pos), pos.name());
+        }
+        for (DividerType type : DividerType.values()) {
+            assertEquals(expected.getDividerPosition(type), actual.getDividerPosition(type), type.name());
+        }
+    }
+
+    @Test
+    void binaryRoundTrip() {
+        ViewPaneState state = createState();
+        assertStateEquals(state, ViewPaneState.fromBinary(state.toBinary()));
+    }
+
+    @Test
+    void jsonRoundTrip() {
+        ViewPaneState state = createState();
+        assertStateEquals(state, ViewPaneState.fromJson(state.toJson()));
+    }
+
+    @Test
+    void emptyStateRoundTrip() {
+        ViewPaneState state = new ViewPaneState();
+        ViewPaneState fromJson = ViewPaneState.fromJson(state.toJson());
+        assertStateEquals(state, fromJson);
+        assertTrue(fromJson.getTabIds(EightPos.TOP_LEFT).isEmpty());
+        assertNull(fromJson.getSelectedTabId(EightPos.TOP_LEFT));
+        assertStateEquals(state, ViewPaneState.fromBinary(state.toBinary()));
+    }
+
+    @Test
+    void binaryRejectsMalformedInput() {
+        assertThrows(UncheckedIOException.class, () -> ViewPaneState.fromBinary(new byte[]{1, 2, 3, 4, 5}));
+        byte[] bytes = createState().toBinary();
+        assertThrows(UncheckedIOException.class, () -> ViewPaneState.fromBinary(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test
+    void binaryRejectsHugeTabCount() {
+        ByteBuffer bytes = ByteBuffer.allocate(11);
+        bytes.putInt(0x56505331).put((byte) 1).put((byte) 1).put((byte) 0).putInt(Integer.MAX_VALUE);
+        assertThrows(UncheckedIOException.class, () -> ViewPaneState.fromBinary(bytes.array()));
+    }
+
+    @Test
+    void infiniteDividerPositionsAreDropped() {
+        ViewPaneState state = createState();
+        state.setDividerPosition(DividerType.LEFT_PRIMARY, Double.POSITIVE_INFINITY);
+        state.setDividerPosition(DividerType.BOTTOM_SECONDARY, Double.NEGATIVE_INFINITY);
+        assertTrue(Double.isNaN(state.getDividerPosition(DividerType.LEFT_PRIMARY)));
+        String json = state.toJson();
+        assertFalse(json.contains("Infinity"), json);
+        assertStateEquals(state, ViewPaneState.fromJson(json));
+        assertStateEquals(state, ViewPaneState.fromBinary(state.toBinary()));
+
+        ViewPaneState overflow = ViewPaneState.fromJson("{\"version\": 1, \"dividers\": {\"LEFT_PRIMARY\": 1e999}}");
+        assertTrue(Double.isNaN(overflow.getDividerPosition(DividerType.LEFT_PRIMARY)));
+    }
+
+    @Test
+    void jsonRejectsWrongTypesWithPath() {
+        assertMalformed("$.groups.LEFT_TOP.tabs[1]", "{\"version\": 1, \"groups\": {\"LEFT_TOP\": {\"tabs\": [\"a\", 2]}}}");
+        assertMalformed("$.groups.LEFT_TOP.tabs", "{\"version\": 1, \"groups\": {\"LEFT_TOP\": {}}}");
+        assertMalformed("$.groups.LEFT_TOP.selected", "{\"version\": 1, \"groups\": {\"LEFT_TOP\": {\"tabs\": [], \"selected\": 1}}}");
+        assertMalformed("$.groups.LEFT_TOP", "{\"version\": 1, \"groups\": {\"LEFT_TOP\": []}}");
+        assertMalformed("$.dividers.LEFT_PRIMARY", "{\"version\": 1, \"dividers\": {\"LEFT_PRIMARY\": \"0.5\"}}");
+        assertMalformed("$", "[]");
+    }
+
+    @Test
+    void jsonRejectsUnknownNames() {
+        assertMalformed("$.groups.CENTER", "{\"version\": 1, \"groups\": {\"CENTER\": {\"tabs\": []}}}");
+        assertMalformed("$.dividers.MIDDLE", "{\"version\": 1, \"dividers\": {\"MIDDLE\": 0.5}}");
+    }
+
+    @Test
+    void jsonRejectsMalformedSyntax() {
+        assertThrows(IllegalArgumentException.class, () -> ViewPaneState.fromJson("{\"version\": 1"));
+        assertThrows(IllegalArgumentException.class, () -> ViewPaneState.fromJson("{\"version\": 1-}"));
+        assertThrows(IllegalArgumentException.class, () -> ViewPaneState.fromJson("{\"version\": \"\\uZZZZ\"}"));
+        assertThrows(IllegalArgumentException.class, () -> ViewPaneState.fromJson("{\"version\": 2}"));
+    }
+
+    @Test
+    void restoreOf200TabsFitsIn10Ms() {
+        Map<String, ViewTab> tabs = createTabs(TAB_COUNT);
+        ViewPaneState state = createState(0);
+        ViewPaneState empty = new ViewPaneState();
+        List<ViewGroup> viewGroups = new ArrayList<>();
+        Function<EightPos, ViewGroup> groupFactory = createGroupFactory(viewGroups);
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            empty.restoreGroups(viewGroups, groupFactory, null, false);
+
+            long start = System.nanoTime();
+            state.restoreGroups(viewGroups, groupFactory, tabs::get, false);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertEquals(TAB_COUNT / 8, groupFactory.apply(EightPos.LEFT_TOP).getTabs().size());
+        assertSame(tabs.get("tab-0"), groupFactory.apply(EightPos.values()[0]).getSelectionModel().getSelectedItem());
+        double millis = best / 1e6;
+        assertTrue(millis < 10, "restore took " + millis + " ms");
+    }
+
+    @Test
+    void tabsWithoutIdAreKeptInPlace() {
+        Map<String, ViewTab> tabs = createTabs(3);
+        ViewTab withoutId = new ViewTab("scratch", new Group());
+        ViewTab other = new ViewTab("other", new Group());
+        List<ViewGroup> viewGroups = new ArrayList<>();
+        Function<EightPos, ViewGroup> groupFactory = createGroupFactory(viewGroups);
+        ViewGroup leftTop = groupFactory.apply(EightPos.LEFT_TOP);
+        leftTop.getTabs().addAll(tabs.get("tab-0"), withoutId, tabs.get("tab-1"));
+        leftTop.getSelectionModel().select(withoutId);
+        groupFactory.apply(EightPos.RIGHT_TOP).getTabs().add(other);
+
+        ViewPaneState state = new ViewPaneState();
+        state.setGroup(EightPos.LEFT_TOP, new String[]{"tab-2", "tab-1", "tab-0"}, null);
+        state.restoreGroups(viewGroups, groupFactory, tabs::get, true);
+
+        assertEquals(Arrays.asList(tabs.get("tab-2"), tabs.get("tab-1"), tabs.get("tab-0"), withoutId),
+                leftTop.getTabs());
+        assertSame(withoutId, leftTop.getSelectionModel().getSelectedItem());
+        assertEquals(Collections.singletonList(other), groupFactory.apply(EightPos.RIGHT_TOP).getTabs());
+
+        state.restoreGroups(viewGroups, groupFactory, tabs::get, false);
+        assertEquals(Arrays.asList(tabs.get("tab-2"), tabs.get("tab-1"), tabs.get("tab-0")), leftTop.getTabs());
+        assertNull(withoutId.getViewGroup());
+        assertTrue(groupFactory.apply(EightPos.RIGHT_TOP).getTabs().isEmpty());
+    }
+
+    /**
+     * The tab diff of {@link ViewPane#switchPerspective(String)}, without the layout.
+     */
+    @Test
+    void perspectiveSwitchFitsInAFrame() {
+        Map<String, ViewTab> tabs = createTabs(TAB_COUNT);
+        ViewPaneState[] states = {createState(0), createState(3)};
+        List<ViewGroup> viewGroups = new ArrayList<>();
+        Function<EightPos, ViewGroup> groupFactory = createGroupFactory(viewGroups);
+        states[0].restoreGroups(viewGroups, groupFactory, tabs::get, true);
+        for (EightPos pos : EightPos.values()) {
+            groupFactory.apply(pos).getTabs().add(1, new ViewTab(pos.name(), new Group()));
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            states[(run + 1) % 2].restoreGroups(viewGroups, groupFactory, tabs::get, true);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        for (EightPos pos : EightPos.values()) {
+            assertEquals(TAB_COUNT / 8 + 1, groupFactory.apply(pos).getTabs().size());
+        }
+        double millis = best / 1e6;
+        assertTrue(millis < 16, "perspective switch took " + millis + " ms");
+    }
+
+    /**
+     * Creates the view groups on demand like {@link ViewPane#getViewGroup(EightPos)}, without a view pane.
+     */
+    static Function<EightPos, ViewGroup> createGroupFactory(List<ViewGroup> viewGroups) {
+        Map<EightPos, ViewGroup> groups = new EnumMap<>(EightPos.class);
+        return pos -> groups.computeIfAbsent(pos, key -> {
+            ViewGroup viewGroup = new ViewGroup(key);
+            viewGroups.add(viewGroup);
+            return viewGroup;
+        });
+    }
+
+    static Map<String, ViewTab> createTabs(int count) {
+        Map<String, ViewTab> tabs = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String id = "tab-" + i;
+            ViewTab tab = new ViewTab(id, new Group());
+            tab.setId(id);
+            tabs.put(id, tab);
+        }
+        return tabs;
+    }
+
+    /**
+     * Spreads {@link #TAB_COUNT} tabs over all positions, shifted by the given number of positions.
+     */
+    static ViewPaneState createState(int shift) {
+        EightPos[] positions = EightPos.values();
+        ViewPaneState state = new ViewPaneState();
+        int perGroup = TAB_COUNT / positions.length;
+        for (int i = 0; i < positions.length; i++) {
+            String[] ids = new String[perGroup];
+            for (int j = 0; j < perGroup; j++) ids[j] = "tab-" + (i * perGroup + j);
+            state.setGroup(positions[(i + shift) % positions.length], ids, ids[shift % perGroup]);
+        }
+        for (DividerType type : DividerType.values()) {
+            state.setDividerPosition(type, type.isPrimary() && shift != 0 ? 0.3 : 0.25);
+        }
+        return state;
+    }
+
+    private static void assertMalformed(String path, String json) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> ViewPaneState.fromJson(json));
+        assertTrue(e.getMessage().contains(path + ":"), e.getMessage());
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.mouse0w0.viewpane;
+
+import com.github.mouse0w0.viewpane.geometry.EightPos;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.stage.Stage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.github.mouse0w0.viewpane.ViewPaneStateTest.RUNS;
+import static com.github.mouse0w0.viewpane.ViewPaneStateTest.TAB_COUNT;
+import static com.github.mouse0w0.viewpane.ViewPaneStateTest.createState;
+import static com.github.mouse0w0.viewpane.ViewPaneStateTest.createTabs;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewPaneTest {
+
+    @BeforeAll
+    static void startToolkit() {
+        FxToolkit.assumeStarted();
+    }
+
+    @Test
+    void closedTabIsNotBroughtBackByPerspective() throws Exception {
+        FxToolkit.run(() -> {
+            ViewPane viewPane = new ViewPane();
+            Map<String, ViewTab> tabs = createTabs(2);
+            ViewTab tab0 = tabs.get("tab-0");
+            ViewTab tab1 = tabs.get("tab-1");
+            viewPane.getViewGroup(EightPos.LEFT_TOP).getTabs().addAll(tab0, tab1);
+            viewPane.savePerspective("edit");
+
+            ViewPaneState debug = new ViewPaneState();
+            debug.setGroup(EightPos.RIGHT_TOP, new String[]{"tab-1"}, "tab-1");
+            viewPane.getPerspectives().put("debug", debug);
+
+            viewPane.switchPerspective("debug");
+            assertNull(tab0.getViewGroup());
+            assertSame(viewPane.getViewGroup(EightPos.RIGHT_TOP), tab1.getViewGroup());
+
+            // The tab taken out by the switch comes back.
+            viewPane.switchPerspective("edit");
+            assertSame(viewPane.getViewGroup(EightPos.LEFT_TOP), tab0.getViewGroup());
+            assertSame(viewPane.getViewGroup(EightPos.LEFT_TOP), tab1.getViewGroup());
+
+            // The tab closed by the user doesn't.
+            viewPane.getViewGroup(EightPos.LEFT_TOP).getTabs().remove(tab1);
+            viewPane.switchPerspective("debug");
+            assertNull(tab1.getViewGroup());
+            assertTrue(viewPane.getViewGroup(EightPos.RIGHT_TOP).getTabs().isEmpty());
+        });
+    }
+
+    @Test
+    void tabWithoutIdStaysInPlaceOnPerspectiveSwitch() throws Exception {
+        FxToolkit.run(() -> {
+            ViewPane viewPane = new ViewPane();
+            Map<String, ViewTab> tabs = createTabs(1);
+            ViewTab withoutId = new ViewTab("scratch", new Label("scratch"));
+            viewPane.getViewGroup(EightPos.LEFT_TOP).getTabs().addAll(tabs.get("tab-0"), withoutId);
+            viewPane.savePerspective("edit");
+
+            ViewPaneState debug = new ViewPaneState();
+            debug.setGroup(EightPos.RIGHT_TOP, new String[]{"tab-0"}, "tab-0");
+            viewPane.getPerspectives().put("debug", debug);
+
+            viewPane.switchPerspective("debug");
+            assertSame(viewPane.getViewGroup(EightPos.LEFT_TOP), withoutId.getViewGroup());
+            viewPane.switchPerspective("edit");
+            assertEquals(Arrays.asList(tabs.get("tab-0"), withoutId),
+                    viewPane.getViewGroup(EightPos.LEFT_TOP).getTabs());
+        });
+    }
+
+    @Test
+    void steadyStateLayoutNeedsNoFurtherPass() throws Exception {
+        FxToolkit.run(() -> {
+            ViewPane viewPane = new ViewPane();
+            for (EightPos pos : EightPos.values()) {
+                ViewTab tab = new ViewTab(pos.name(), new Label(pos.name()));
+                viewPane.getViewGroup(pos).getTabs().add(tab);
+                viewPane.getViewGroup(pos).getSelectionModel().select(tab);
+            }
+            for (DividerType type : DividerType.values()) {
+                // Out of range positions are clamped by the first pass.
+                viewPane.setDividerPosition(type, type.isPrimary() ? 0.01 : 0.5);
+            }
+            Stage stage = show(viewPane);
+            try {
+                layout(viewPane);
+
+                int[] positionChanges = new int[1];
+                for (ViewPane.Divider divider : viewPane.getDividers()) {
+                    divider.positionProperty().addListener(observable -> positionChanges[0]++);
+                }
+                Parent divisionArea = (Parent) viewPane.lookup(".division-area");
+                for (int pass = 0; pass < 3; pass++) {
+                    layout(viewPane);
+                    assertFalse(divisionArea.isNeedsLayout(), "pass " + pass);
+                }
+                assertEquals(0, positionChanges[0]);
+            } finally {
+                stage.hide();
+            }
+        });
+    }
+
+    /**
+     * Like {@link ViewPaneStateTest#restoreOf200TabsFitsIn10Ms()}, including the layout of the skin.
+     */
+    @Test
+    void restoreOf200TabsFitsIn10Ms() throws Exception {
+        double millis = FxToolkit.call(() -> {
+            ViewPane viewPane = new ViewPane();
+            Stage stage = show(viewPane);
+            try {
+                Map<String, ViewTab> tabs = createTabs(TAB_COUNT);
+                ViewPaneState state = createState(0);
+                ViewPaneState empty = new ViewPaneState();
+
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    empty.restore(viewPane, null);
+                    layout(viewPane);
+
+                    long start = System.nanoTime();
+                    state.restore(viewPane, tabs::get);
+                    layout(viewPane);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                assertEquals(TAB_COUNT / 8, viewPane.getViewGroup(EightPos.LEFT_TOP).getTabs().size());
+                return best / 1e6;
+            } finally {
+                stage.hide();
+            }
+        });
+        assertTrue(millis < 10, "restore took " + millis + " ms");
+    }
+
+    /**
+     * Like {@link ViewPaneStateTest#perspectiveSwitchFitsInAFrame()}, including the layout of the skin.
+     */
+    @Test
+    void perspectiveSwitchFitsInAFrame() throws Exception {
+        double millis = FxToolkit.call(() -> {
+            ViewPane viewPane = new ViewPane();
+            Stage stage = show(viewPane);
+            try {
+                Map<String, ViewTab> tabs = createTabs(TAB_COUNT);
+                createState(0).restore(viewPane, tabs::get);
+                viewPane.savePerspective("edit");
+                viewPane.getPerspectives().put("debug", createState(3));
+                layout(viewPane);
+
+                long best = Long.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    viewPane.switchPerspective(run % 2 == 0 ? "debug" : "edit");
+                    layout(viewPane);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                return best / 1e6;
+            } finally {
+                stage.hide();
+            }
+        });
+        assertTrue(millis < 16, "perspective switch took " + millis + " ms");
+    }
+
+    static Stage show(ViewPane viewPane) {
+        Stage stage = new Stage();
+        stage.setScene(new Scene(viewPane, 1200, 800));
+        stage.show();
+        return stage;
+    }
+
+    static void layout(ViewPane viewPane) {
+        viewPane.applyCss();
+        viewPane.layout();
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.mouse0w0.viewpane;
+
+import javafx.scene.Group;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewTabTest {
+
+    @Test
+    void asyncFactoryThrowingIsNotLeftLoading() {
+        IllegalStateException failure = new IllegalStateException();
+        ViewTab tab = new ViewTab("Tab");
+        tab.setAsyncContentFactory((t, executor) -> {
+            throw failure;
+        });
+
+        CompletableFuture<?> first = tab.loadContentAsync(Runnable::run);
+        assertTrue(first.isCompletedExceptionally());
+        assertFalse(tab.isContentLoading());
+        assertSame(failure, tab.getContentLoadError());
+
+        // The next load retries instead of returning the failed future.
+        assertNotSame(first, tab.loadContentAsync(Runnable::run));
+    }
+
+    @Test
+    void asyncFactoryReturningNoFutureFails() {
+        ViewTab tab = new ViewTab("Tab");
+        tab.setAsyncContentFactory((t, executor) -> null);
+
+        assertTrue(tab.loadContentAsync(Runnable::run).isCompletedExceptionally());
+        assertFalse(tab.isContentLoading());
+        assertTrue(tab.getContentLoadError() instanceof NullPointerException);
+    }
+
+    @Test
+    void asyncOnlyContentCanBeUnloaded() {
+        ViewTab tab = new ViewTab("Tab");
+        tab.setAsyncContentFactory((t, executor) -> CompletableFuture.completedFuture(new Group()));
+        tab.setContent(new Group());
+
+        assertTrue(tab.isContentRebuildable());
+        assertTrue(tab.unloadContent());
+        assertFalse(tab.isContentLoaded());
+    }
+
+    @Test
+    void contentWithoutFactoryIsKept() {
+        ViewTab tab = new ViewTab("Tab", new Group());
+
+        assertFalse(tab.isContentRebuildable());
+        assertFalse(tab.unloadContent());
+        assertTrue(tab.isContentLoaded());
+    }
+}
@@ -0,0 +1,284 @@
+package com.github.mouse0w0.viewpane.skin;
+
+import javafx.geometry.Orientation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DivisionHelperTest {
+    private static final double EPSILON = 1e-9;
+
+    private DivisionHelper helper;
+
+    /**
+     * A vertical split of a horizontal split (containers 0 and 1, divider 0) and container 2, separated by
+     * divider 1.
+     */
+    @BeforeEach
+    void setUp() {
+        helper = new DivisionHelper();
+        for (int i = 0; i < 3; i++) helper.createContainer();
+        for (int i = 0; i < 2; i++) helper.createDivider();
+
+        int horizontal = helper.createSplit(Orientation.HORIZONTAL);
+        helper.addContainer(horizontal, 0);
+        helper.addDivider(horizontal, 0);
+        helper.addContainer(horizontal, 1);
+
+        int vertical = helper.createSplit(Orientation.VERTICAL);
+        helper.addSplit(vertical, horizontal);
+        helper.addDivider(vertical, 1);
+        helper.addContainer(vertical, 2);
+        helper.setRoot(vertical);
+
+        for (int i = 0; i < 3; i++) helper.setContainer(i, true, 0, 0);
+        helper.setDivider(0, true, 4, 1 / 3.0);
+        helper.setDivider(1, true, 4, 0.5);
+    }
+
+    @Test
+    void snapToPixelChangeRelaysOutNestedSplits() {
+        helper.layout(0, 0, 1001, 100, true);
+        assertEquals(Math.ceil(1001 / 3.0 - 2), helper.getContainerWidth(0), EPSILON);
+
+        helper.layout(0, 0, 1001, 100, false);
+        assertEquals(1001 / 3.0 - 2, helper.getContainerWidth(0), EPSILON);
+
+        helper.layout(0, 0, 1001, 100, true);
+        assertEquals(Math.ceil(1001 / 3.0 - 2), helper.getContainerWidth(0), EPSILON);
+    }
+
+    @Test
+    void fixedDividerKeepsPixelSizeAcrossResizes() {
+        helper.setResizeWeight(0, 0);
+        helper.setDivider(0, true, 4, 0.2);
+
+        layoutAsSkin(1000);
+        assertEquals(198, helper.getContainerWidth(0), EPSILON);
+        for (double width : new double[]{1200, 1200, 1400, 1400, 800, 800}) {
+            layoutAsSkin(width);
+            assertEquals(198, helper.getContainerWidth(0), EPSILON);
+        }
+    }
+
+    @Test
+    void weightedDividerSplitsTheChange() {
+        helper.setResizeWeight(0, 0.5);
+        helper.setDivider(0, true, 4, 0.5);
+
+        layoutAsSkin(1000);
+        layoutAsSkin(1200);
+        layoutAsSkin(1200);
+        assertEquals(598, helper.getContainerWidth(0), EPSILON);
+        assertEquals(598, helper.getContainerWidth(1), EPSILON);
+    }
+
+    @Test
+    void splitTilesTheArea() {
+        helper.layout(10, 20, 1000, 600, true);
+
+        assertEquals(10, helper.getContainerX(0), EPSILON);
+        assertEquals(20, helper.getContainerY(0), EPSILON);
+        assertEquals(helper.getContainerX(0) + helper.getContainerWidth(0), helper.getDividerX(0), EPSILON);
+        assertEquals(helper.getDividerX(0) + 4, helper.getContainerX(1), EPSILON);
+        assertEquals(1010, helper.getContainerX(1) + helper.getContainerWidth(1), EPSILON);
+        assertEquals(helper.getContainerHeight(0), helper.getContainerHeight(1), EPSILON);
+
+        assertEquals(helper.getContainerY(0) + helper.getContainerHeight(0), helper.getDividerY(1), EPSILON);
+        assertEquals(helper.getDividerY(1) + 4, helper.getContainerY(2), EPSILON);
+        assertEquals(620, helper.getContainerY(2) + helper.getContainerHeight(2), EPSILON);
+        assertEquals(1000, helper.getContainerWidth(2), EPSILON);
+    }
+
+    @Test
+    void minSizeClampsDivider() {
+        helper.setContainer(0, true, 500, 0);
+        helper.setContainer(1, true, 300, 0);
+
+        helper.layout(0, 0, 1000, 100, true);
+        assertEquals(500, helper.getContainerWidth(0), EPSILON);
+
+        helper.layout(0, 0, 700, 100, true);
+        assertEquals(700 - 4 - 300, helper.getContainerWidth(0), EPSILON);
+        assertEquals(300, helper.getContainerWidth(1), EPSILON);
+    }
+
+    @Test
+    void unmanagedContainerLeavesSpaceToSibling() {
+        helper.setContainer(1, false, 0, 0);
+        helper.setDivider(0, false, 4, 1 / 3.0);
+
+        helper.layout(0, 0, 1000, 100, true);
+        assertEquals(1000, helper.getContainerWidth(0), EPSILON);
+    }
+
+    @Test
+    void nArySplitKeepsMinSizesOfOutOfOrderDividers() {
+        assertNArySplitKeepsMinSizes(0.5, 0.5, 0.5);
+        assertNArySplitKeepsMinSizes(0.9, 0.2, 0.3);
+        assertNArySplitKeepsMinSizes(0.9, 0.92, 0.94);
+        assertNArySplitKeepsMinSizes(0.01, 0.02, 0.03);
+    }
+
+    private static void assertNArySplitKeepsMinSizes(double... positions) {
+        DivisionHelper helper = new DivisionHelper();
+        int split = helper.createSplit(Orientation.HORIZONTAL);
+        for (int i = 0; i <= positions.length; i++) {
+            helper.addContainer(split, helper.createContainer());
+            helper.setContainer(i, true, 50, 0);
+            if (i < positions.length) {
+                helper.addDivider(split, helper.createDivider());
+                helper.setDivider(i, true, 4, positions[i]);
+            }
+        }
+        helper.setRoot(split);
+
+        helper.layout(0, 0, 1000, 100, false);
+        double x = 0;
+        for (int i = 0; i <= positions.length; i++) {
+            String message = "container " + i + " of " + Arrays.toString(positions);
+            assertEquals(x, helper.getContainerX(i), EPSILON, message);
+            assertTrue(helper.getContainerWidth(i) >= 50 - EPSILON, message);
+            x = helper.getContainerX(i) + helper.getContainerWidth(i) + 4;
+        }
+        assertEquals(1004, x, EPSILON);
+    }
+
+    @Test
+    void steadyStateLayoutChangesNothing() {
+        layoutAsSkin(1000);
+        layoutAsSkin(1000);
+        for (int i = 0; i < helper.getContainerCount(); i++) {
+            assertFalse(helper.isContainerChanged(i), "container " + i);
+        }
+        for (int i = 0; i < helper.getDividerCount(); i++) {
+            assertFalse(helper.isDividerChanged(i), "divider " + i);
+        }
+    }
+
+    @Test
+    void cacheRestoresEarlierLayout() {
+        DivisionHelper uncached = createEightPosLayout(0);
+        DivisionHelper cached = createEightPosLayout(DivisionHelper.DEFAULT_CACHE_SIZE);
+        for (double width : new double[]{1000, 1600, 1000, 1600, 1300, 1000}) {
+            uncached.layout(0, 0, width, 800, true);
+            cached.layout(0, 0, width, 800, true);
+            for (int i = 0; i < uncached.getContainerCount(); i++) {
+                assertEquals(uncached.getContainerX(i), cached.getContainerX(i), EPSILON);
+                assertEquals(uncached.getContainerY(i), cached.getContainerY(i), EPSILON);
+                assertEquals(uncached.getContainerWidth(i), cached.getContainerWidth(i), EPSILON);
+                assertEquals(uncached.getContainerHeight(i), cached.getContainerHeight(i), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    void cacheMissesWhenInputChanges() {
+        helper.layout(0, 0, 1000, 100, true);
+        helper.layout(0, 0, 1400, 100, true);
+        helper.setContainer(0, true, 600, 0);
+        helper.layout(0, 0, 1000, 100, true);
+        assertEquals(600, helper.getContainerWidth(0), EPSILON);
+    }
+
+    @Test
+    void layoutFitsTheFrameBudget() {
+        DivisionHelper helper = createEightPosLayout(0);
+        for (int i = 0; i < 20_000; i++) {
+            helper.layout(0, 0, 800 + i % 800, 600 + i % 400, true);
+        }
+
+        int passes = 1000;
+        long start = System.nanoTime();
+        for (int i = 0; i < passes; i++) {
+            helper.layout(0, 0, 800 + i % 800, 600 + i % 400, true);
+        }
+        double averageMillis = (System.nanoTime() - start) / 1e6 / passes;
+        // A live resize lays out once per pulse, the solver has to be a small part of a 16 ms frame.
+        assertTrue(averageMillis < 1, "average layout took " + averageMillis + " ms");
+    }
+
+    private static DivisionHelper createEightPosLayout(int cacheSize) {
+        DivisionHelper helper = DivisionHelper.createEightPosLayout();
+        helper.setCacheSize(cacheSize);
+        for (int i = 0; i < helper.getContainerCount(); i++) helper.setContainer(i, true, 20, 20);
+        for (int i = 0; i < helper.getDividerCount(); i++) helper.setDivider(i, true, 4, i % 2 == 0 ? 0.2 : 0.5);
+        return helper;
+    }
+
+    @Test
+    void childWeightsDistributeTheChange() {
+        DivisionHelper helper = createThreeWaySplit(1, 2, 1);
+        layoutAsSkin(helper, 1000);
+        double[] widths = containerWidths(helper);
+        layoutAsSkin(helper, 1400);
+        layoutAsSkin(helper, 1400);
+        assertEquals(widths[0] + 100, helper.getContainerWidth(0), 1);
+        assertEquals(widths[1] + 200, helper.getContainerWidth(1), 1);
+        assertEquals(widths[2] + 100, helper.getContainerWidth(2), 1);
+    }
+
+    @Test
+    void childWeightsOfUnmanagedChildrenAreIgnored() {
+        DivisionHelper helper = createThreeWaySplit(1, 1, 1);
+        helper.setContainer(2, false, 0, 0);
+        helper.setDivider(1, false, 4, 2 / 3.0);
+        for (double width : new double[]{1000, 1200, 1200}) {
+            helper.layout(0, 0, width, 100, true);
+            helper.setDivider(0, true, 4, helper.getPosition(0));
+            if (width == 1000) assertEquals(1000 / 3.0 - 2, helper.getContainerWidth(0), 1);
+        }
+        // The collapsed last child takes no share, so the change is split between the first two.
+        assertEquals(1000 / 3.0 - 2 + 100, helper.getContainerWidth(0), 1);
+    }
+
+    @Test
+    void childWeightsRejectWrongCount() {
+        DivisionHelper helper = createThreeWaySplit(1, 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> helper.setWeights(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> helper.setWeights(0, 1, -1, 1));
+    }
+
+    private static DivisionHelper createThreeWaySplit(double... weights) {
+        DivisionHelper helper = new DivisionHelper();
+        int split = helper.createSplit(Orientation.HORIZONTAL);
+        for (int i = 0; i < 3; i++) {
+            if (i > 0) {
+                helper.addDivider(split, helper.createDivider());
+                helper.setDivider(i - 1, true, 4, i / 3.0);
+            }
+            helper.addContainer(split, helper.createContainer());
+            helper.setContainer(i, true, 0, 0);
+        }
+        helper.setRoot(split);
+        helper.setWeights(split, weights);
+        return helper;
+    }
+
+    private static double[] containerWidths(DivisionHelper helper) {
+        double[] widths = new double[helper.getContainerCount()];
+        for (int i = 0; i < widths.length; i++) widths[i] = helper.getContainerWidth(i);
+        return widths;
+    }
+
+    /**
+     * Lays out like the skin does: the positions adjusted by the layout are read back and pushed as the input
+     * of the next pass.
+     */
+    private void layoutAsSkin(double width) {
+        layoutAsSkin(helper, width);
+    }
+
+    private static void layoutAsSkin(DivisionHelper helper, double width) {
+        helper.layout(0, 0, width, 100, true);
+        for (int i = 0; i < helper.getDividerCount(); i++) {
+            helper.setDivider(i, true, 4, helper.getPosition(i));
+        }
+    }
+}